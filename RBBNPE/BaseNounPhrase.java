@@ -30,7 +30,11 @@ public class BaseNounPhrase {
     private int startOffset;
     private int endOffset;
 
+    private int sentenceIndex = -1;
+    private int startToken = -1;
+
     private String head;
+    private HeadRules headRules = HeadRules.COLLINS;
 
 
     /**
@@ -49,9 +53,42 @@ public class BaseNounPhrase {
         this.posTag = posTag;
     }
 
+    /**
+     *
+     * @param phraseString The String of the phrase
+     * @param phraseStringWithPOSTags The String of the phrase with the respective POS tags behind each token
+     * @param startOffset Start-offset of phrase in characters, no annotation tokens, in file
+     * @param endOffset End-offset of phrase in characters, no annotation tokens, in file
+     * @param posTag
+     * @param sentenceIndex Index of the sentence the phrase was extracted from
+     * @param startToken Index of the first token of the phrase in its sentence
+     */
+    public BaseNounPhrase(String phraseString, String phraseStringWithPOSTags, int startOffset, int endOffset, String posTag, int sentenceIndex, int startToken) {
+        this(phraseString, phraseStringWithPOSTags, startOffset, endOffset, posTag);
+        this.sentenceIndex = sentenceIndex;
+        this.startToken = startToken;
+    }
+
+    /**
+     *
+     * @param phraseString The String of the phrase
+     * @param phraseStringWithPOSTags The String of the phrase with the respective POS tags behind each token
+     * @param startOffset Start-offset of phrase in characters, no annotation tokens, in file
+     * @param endOffset End-offset of phrase in characters, no annotation tokens, in file
+     * @param posTag
+     * @param sentenceIndex Index of the sentence the phrase was extracted from
+     * @param startToken Index of the first token of the phrase in its sentence
+     * @param headRules Rules, which find the head of the phrase
+     */
+    public BaseNounPhrase(String phraseString, String phraseStringWithPOSTags, int startOffset, int endOffset, String posTag, int sentenceIndex, int startToken, HeadRules headRules) {
+        this(phraseString, phraseStringWithPOSTags, startOffset, endOffset, posTag, sentenceIndex, startToken);
+        this.headRules = headRules;
+    }
+
     /**
      * Returns a string with the token, which is considered to be the head of the noun phrase
-     * Rules by Collins, Michael. "Head-driven statistical models for natural language parsing." Computational linguistics 29.4 (2003)
+     * Uses the head rules of the rule set the phrase was extracted with, by default the rules by
+     * Collins, Michael. "Head-driven statistical models for natural language parsing." Computational linguistics 29.4 (2003)
      * @return String The extracted head
      */
     public String getHead() {
@@ -63,61 +100,18 @@ public class BaseNounPhrase {
 
             for (String word : wordsWIthTagsInBaseNP) {
 
-                String token = word.replaceAll("(?<!/)/[A-Z,$,#,€]{1,4}", "").trim();
-                String POSTag = word.replace(token, "").trim();
-                POSTag = POSTag.replace("/", "");
+                //The tag follows the last slash, so tokens like 1/2 and tags of any length and tag set are split correctly
+                int slash = word.lastIndexOf('/');
+                String token = slash < 0 ? word : word.substring(0, slash);
+                String POSTag = slash < 0 ? "" : word.substring(slash + 1);
 
                 tokens.add(token);
                 POSTags.add(POSTag);
             }
 
-            if (POSTags.get(tokens.size() - 1).equals("POS")) {
-                head = tokens.get(tokens.size() - 1);
-                return head;
-            }
-            for (int i = tokens.size() - 1; i >= 0; i--) {
-                String POSTag = POSTags.get(i);
-                if (POSTag.equals("NN") || POSTag.equals("NNP") || POSTag.equals("NNPS") || POSTag.equals("NNS") || POSTag.equals("NX") || POSTag.equals("POS") || POSTag.equals("JJR")) {
-                    head = tokens.get(i);
-                    return head;
-                }
-            }
-            for (int j = 0; j < tokens.size(); j++) {
-                String POSTag = POSTags.get(j);
-                if (POSTag.equals("NP")) {
-                    head = tokens.get(j);
-                    return head;
-                } else {
-
-                }
-            }
-            for (int i = tokens.size() - 1; i >= 0; i--) {
-                String POSTag = POSTags.get(i);
-                if (POSTag.equals("$") || POSTag.equals("ADJP") || POSTag.equals("PRN")) {
-                    head = tokens.get(i);
-                    return head;
-                }
-            }
-            for (int i = tokens.size() - 1; i >= 0; i--) {
-                String POSTag = POSTags.get(i);
-                if (POSTag.equals("CD")) {
-                    head = tokens.get(i);
-                    return head;
-                }
-            }
-            for (int i = tokens.size() - 1; i >= 0; i--) {
-                String POSTag = POSTags.get(i);
-                if (POSTag.equals("JJ") || POSTag.equals("JJS") || POSTag.equals("RB") || POSTag.equals("QP")) {
-                    head = tokens.get(i);
-                    return head;
-                }
-            }
-            head = tokens.get(tokens.size() - 1);
-            return head;
-        }
-        else {
-            return head;
+            head = headRules.findHead(tokens, POSTags);
         }
+        return head;
     }
 
     /**
@@ -152,6 +146,22 @@ public class BaseNounPhrase {
         return startOffset;
     }
 
+    /**
+     * Returns the index of the sentence the noun phrase was extracted from
+     * @return sentenceIndex as int, -1 if unknown.
+     */
+    public int getSentenceIndex() {
+        return sentenceIndex;
+    }
+
+    /**
+     * Returns the index of the first token of the noun phrase in its sentence
+     * @return startToken as int, -1 if unknown.
+     */
+    public int getStartToken() {
+        return startToken;
+    }
+
     /**
      * Returns the start Offset as counted in tokens of the noun phrase
      * @return startOffsetInTokens in the file as int.
@@ -0,0 +1,269 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A lightweight HTTP server around one extractor, based on the HTTP server of the JDK.
+ * All requests share the same POS tagger and the same compiled rules.
+ * Every request is handled on its own virtual thread (Java 21 and newer, otherwise on a cached thread pool),
+ * while the number of extractions running at the same time is limited to the number of cores.
+ *
+ * Endpoints:
+ * POST /extract?input=text|conll|sentences|simple&output=json|iob2 with the text or CoNLL data as UTF-8 body.
+ *      With input=sentences the body contains one tokenized sentence per line, the tokens separated by whitespace.
+ *      With input=simple the text is split by the lightweight tokenizer of TokenizedText instead of the tokenizer of the tagger
+ * GET  /metrics returns the stage metrics of the extractor as JSON
+ */
+public class BaseNounPhraseServer {
+
+    private final POSBasedBaseNounPhraseExtractor extractor;
+    private final HttpServer httpServer;
+    private final ExecutorService requestExecutor;
+    private final Semaphore extractionPermits;
+
+
+    /**
+     * @param extractor                 the extractor shared by all requests
+     * @param address                   address and port to listen on
+     * @param maxConcurrentExtractions  how many extractions may run at the same time
+     * @throws IOException if the server can not listen on the address
+     */
+    public BaseNounPhraseServer(POSBasedBaseNounPhraseExtractor extractor, InetSocketAddress address, int maxConcurrentExtractions) throws IOException {
+        this.extractor = extractor;
+        this.extractionPermits = new Semaphore(maxConcurrentExtractions, true);
+        this.requestExecutor = createRequestExecutor();
+
+        this.httpServer = HttpServer.create(address, 0);
+        httpServer.createContext("/extract", new ExtractHandler());
+        httpServer.createContext("/metrics", new MetricsHandler());
+        httpServer.setExecutor(requestExecutor);
+    }
+
+    /**
+     * Uses a virtual thread per request, if the JVM supports them
+     */
+    private static ExecutorService createRequestExecutor() {
+        try {
+            Method newVirtualThreadPerTaskExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+        } catch (Exception e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * Stops the server
+     *
+     * @param delaySeconds how long running requests may take to finish
+     */
+    public void stop(int delaySeconds) {
+        httpServer.stop(delaySeconds);
+        requestExecutor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return httpServer.getAddress();
+    }
+
+
+    private class ExtractHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (!exchange.getRequestMethod().equals("POST")) {
+                    sendResponse(exchange, 405, "text/plain", "Only POST is supported");
+                    return;
+                }
+
+                Map<String, String> parameters = getQueryParameters(exchange);
+                String input = getOrDefault(parameters, "input", "text");
+                String output = getOrDefault(parameters, "output", "json");
+                if (!input.equals("text") && !input.equals("conll") && !input.equals("sentences") && !input.equals("simple")) {
+                    sendResponse(exchange, 400, "text/plain", "Unknown input format: " + input);
+                    return;
+                }
+                if (!output.equals("json") && !output.equals("iob2")) {
+                    sendResponse(exchange, 400, "text/plain", "Unknown output format: " + output);
+                    return;
+                }
+
+                String body = readBody(exchange);
+
+                ExtractionResult result;
+                extractionPermits.acquire();
+                try {
+                    if (input.equals("conll")) {
+                        result = extractor.extractFromCoNLL(new BufferedReader(new StringReader(body)));
+                    } else if (input.equals("sentences")) {
+                        result = extractor.extractFromSentences(Arrays.asList(body.split("\r?\n")));
+                    } else if (input.equals("simple")) {
+                        result = extractor.extractFromSimpleText(body);
+                    } else {
+                        result = extractor.extractFromText(body);
+                    }
+                } finally {
+                    extractionPermits.release();
+                }
+
+                if (output.equals("iob2")) {
+                    StringWriter conll = new StringWriter();
+                    PrintWriter writer = new PrintWriter(conll);
+                    result.writeAsCoNLL(writer);
+                    writer.flush();
+                    sendResponse(exchange, 200, "text/plain; charset=utf-8", conll.toString());
+                } else {
+                    sendResponse(exchange, 200, "application/json; charset=utf-8", toJSON(result));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendResponse(exchange, 503, "text/plain", "Interrupted");
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                sendResponse(exchange, 500, "text/plain", "Extraction failed: " + e);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    private class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String metrics = "{\"extractor\":" + extractor.getMetrics().toJSON()
+                        + ",\"availableExtractionPermits\":" + extractionPermits.availablePermits()
+                        + ",\"ruleSetVersion\":" + extractor.getRuleSet().getVersion() + "}";
+                sendResponse(exchange, 200, "application/json; charset=utf-8", metrics);
+            } finally {
+                exchange.close();
+            }
+        }
+    }
+
+    /**
+     * Creates the JSON response for an extraction
+     *
+     * @param result the result of the extraction
+     * @return JSON String
+     */
+    static String toJSON(ExtractionResult result) {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"ruleSetVersion\":").append(result.getRuleSetVersion());
+        json.append(",\"sentences\":").append(result.getTaggedSentences().size());
+        json.append(",\"baseNounPhrases\":[");
+
+        ArrayList<BaseNounPhrase> baseNounPhrases = result.getBaseNounPhrases();
+        for (int i = 0; i < baseNounPhrases.size(); i++) {
+            BaseNounPhrase baseNP = baseNounPhrases.get(i);
+            if (i > 0) {
+                json.append(",");
+            }
+            json.append("{\"phrase\":").append(JSONUtils.quote(baseNP.getPhraseString()));
+            json.append(",\"head\":").append(JSONUtils.quote(baseNP.getHead()));
+            json.append(",\"posTag\":").append(JSONUtils.quote(baseNP.getPosTag()));
+            json.append(",\"startOffset\":").append(baseNP.getStartOffset());
+            json.append(",\"endOffset\":").append(baseNP.getEndOffset());
+            json.append("}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        InputStream body = exchange.getRequestBody();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = body.read(buffer)) != -1) {
+            bytes.write(buffer, 0, read);
+        }
+        return bytes.toString("UTF-8");
+    }
+
+    private static void sendResponse(HttpExchange exchange, int status, String contentType, String response) throws IOException {
+        byte[] bytes = response.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(bytes);
+        out.close();
+    }
+
+    private static Map<String, String> getQueryParameters(HttpExchange exchange) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<String, String>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            if (equals > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, equals), "UTF-8"), URLDecoder.decode(parameter.substring(equals + 1), "UTF-8"));
+            }
+        }
+        return parameters;
+    }
+
+    private static String getOrDefault(Map<String, String> parameters, String name, String defaultValue) {
+        String value = parameters.get(name);
+        return value != null ? value.toLowerCase() : defaultValue;
+    }
+
+    /**
+     * Starts the server on localhost
+     * Arguments: pathToStanfordModel [port] [positiveRulesPath rejectionRulesPath]
+     * The rules files are watched and reloaded when they change
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BaseNounPhraseServer pathToStanfordModel [port] [positiveRulesPath rejectionRulesPath]");
+            return;
+        }
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 8080;
+
+        POSBasedBaseNounPhraseExtractor extractor;
+        if (args.length > 3) {
+            extractor = new POSBasedBaseNounPhraseExtractor(args[0], RuleSource.fromFile(args[2]), RuleSource.fromFile(args[3]));
+        } else {
+            extractor = new POSBasedBaseNounPhraseExtractor(args[0]);
+        }
+        extractor.setVerbose(false);
+        extractor.watchRuleFiles();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        BaseNounPhraseServer server = new BaseNounPhraseServer(extractor, new InetSocketAddress("localhost", port), cores);
+        server.start();
+        System.out.println("Listening on http://localhost:" + server.getAddress().getPort() + "/extract with " + cores + " concurrent extractions");
+    }
+}
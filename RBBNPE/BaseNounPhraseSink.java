@@ -0,0 +1,29 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+/**
+ * Receives the base noun phrases of extractions, e.g. to store or count them instead of keeping the result lists.
+ * The phrases of one extraction are passed in the order of the result list.
+ * Sinks may be used by several extractions at once, so implementations have to be thread safe
+ */
+public interface BaseNounPhraseSink {
+
+    /**
+     * Receives one extracted base noun phrase
+     *
+     * @param baseNP the extracted phrase
+     */
+    void accept(BaseNounPhrase baseNP);
+}
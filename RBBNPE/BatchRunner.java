@@ -0,0 +1,405 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Command line tool, which extracts the base noun phrases of all files in a directory.
+ * The files are split into shards, one for each worker. All workers share one tagger and one compiled rule set.
+ * For every input file a file with the same name is written to the output directory in the CoNLL format,
+ * the same way as writeBaseNounPhrasesAsCoNLLFile does.
+ * Finished files are recorded in a manifest, so an interrupted run can be resumed and skips them.
+ * With --store the phrases of all files are additionally kept in an OffHeapPhraseStore with its segment files in the given directory
+ * and the most frequent heads are printed at the end. Each file is one document of the store. A resumed run appends to the store
+ * and does not add files again, which the store already contains.
+ * With --aggregate the phrases and heads of the processed files are counted by a PhraseAggregator, which is written to the given file.
+ * The counts of each file are saved in the directory next to it with the suffix .parts, before the file is recorded in the manifest.
+ * A resumed run restores the counts of the completed files from there, files completed without saved counts are processed again.
+ * With --heavy-hitters the counts are estimated with bounded memory and only the given number of most frequent phrases and heads is kept
+ *
+ * Usage: BatchRunner --model path --input dir --output dir [--mode text|conll] [--workers n]
+ *                    [--positive-rules path --rejection-rules path] [--manifest path] [--store dir]
+ *                    [--aggregate file [--heavy-hitters k]]
+ */
+public class BatchRunner {
+
+    private static final String DEFAULT_MANIFEST_NAME = ".completed";
+    private static final String PARTIAL_COUNTS_SUFFIX = ".parts";
+    private static final int AGGREGATION_SKETCH_WIDTH = 1 << 20;
+    private static final int AGGREGATION_SKETCH_DEPTH = 4;
+
+    private final POSBasedBaseNounPhraseExtractor extractor;
+    private final Path inputDirectory;
+    private final Path outputDirectory;
+    private final boolean conllMode;
+    private final int numberOfWorkers;
+    private final Path manifestPath;
+
+    private final AtomicLong processedFiles = new AtomicLong();
+    private final AtomicLong failedFiles = new AtomicLong();
+    private final AtomicLong sentences = new AtomicLong();
+    private final AtomicLong tokens = new AtomicLong();
+    private final AtomicLong baseNounPhrases = new AtomicLong();
+
+    private Writer manifestWriter;
+    private final List<BaseNounPhraseSink> sinks = new ArrayList<BaseNounPhraseSink>();
+    private OffHeapPhraseStore store;
+    private PhraseAggregator aggregator;
+    private Path partialCountsDirectory;
+
+
+    /**
+     * @param extractor       the extractor shared by all workers
+     * @param inputDirectory  directory with the input files
+     * @param outputDirectory directory the CoNLL files are written to
+     * @param conllMode       true if the input files are in the CoNLL format, false if they contain text
+     * @param numberOfWorkers number of files processed at the same time
+     * @param manifestPath    file with the names of the finished files
+     */
+    public BatchRunner(POSBasedBaseNounPhraseExtractor extractor, Path inputDirectory, Path outputDirectory, boolean conllMode, int numberOfWorkers, Path manifestPath) {
+        this.extractor = extractor;
+        this.inputDirectory = inputDirectory;
+        this.outputDirectory = outputDirectory;
+        this.conllMode = conllMode;
+        this.numberOfWorkers = numberOfWorkers;
+        this.manifestPath = manifestPath;
+    }
+
+    /**
+     * Adds a sink, which receives the base noun phrases of every processed file
+     *
+     * @param sink the sink
+     */
+    public void addSink(BaseNounPhraseSink sink) {
+        sinks.add(sink);
+    }
+
+    /**
+     * Sets a store, which receives the base noun phrases of every processed file as one document named like the file.
+     * The store is flushed before a file is recorded in the manifest
+     *
+     * @param store the store, e.g. opened again to resume a run
+     */
+    public void setStore(OffHeapPhraseStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Sets an aggregator, which counts the base noun phrases of all files in the manifest.
+     * The counts of every file are saved in a directory before the file is recorded in the manifest,
+     * so a resumed run adds the saved counts of the completed files to the aggregator instead of losing them
+     *
+     * @param aggregator             the aggregator, either exact or bounded
+     * @param partialCountsDirectory directory with the counts of the single files
+     */
+    public void setAggregator(PhraseAggregator aggregator, Path partialCountsDirectory) {
+        this.aggregator = aggregator;
+        this.partialCountsDirectory = partialCountsDirectory;
+    }
+
+    /**
+     * Processes all files, which are not in the manifest yet, and prints a summary
+     *
+     * @throws IOException if the directories or the manifest can not be read or written
+     * @throws InterruptedException
+     */
+    public void run() throws IOException, InterruptedException {
+        Files.createDirectories(outputDirectory);
+
+        Set<String> completedFiles = readManifest();
+        if (aggregator != null) {
+            Files.createDirectories(partialCountsDirectory);
+            readPartialCounts(completedFiles);
+        }
+        List<Path> inputFiles = new ArrayList<Path>();
+        DirectoryStream<Path> directoryStream = Files.newDirectoryStream(inputDirectory);
+        try {
+            for (Path file : directoryStream) {
+                if (Files.isRegularFile(file) && !completedFiles.contains(file.getFileName().toString())) {
+                    inputFiles.add(file);
+                }
+            }
+        } finally {
+            directoryStream.close();
+        }
+        Collections.sort(inputFiles);
+
+        System.out.println(inputFiles.size() + " files to process, " + completedFiles.size() + " already completed");
+
+        manifestWriter = new OutputStreamWriter(new FileOutputStream(manifestPath.toFile(), true), "UTF-8");
+        long startNanos = System.nanoTime();
+        try {
+            Thread[] workers = new Thread[numberOfWorkers];
+            for (int w = 0; w < numberOfWorkers; w++) {
+                final List<Path> shard = new ArrayList<Path>();
+                for (int i = w; i < inputFiles.size(); i += numberOfWorkers) {
+                    shard.add(inputFiles.get(i));
+                }
+                workers[w] = new Thread("RBBNPE batch worker " + w) {
+                    public void run() {
+                        for (Path file : shard) {
+                            processFile(file);
+                        }
+                    }
+                };
+                workers[w].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } finally {
+            manifestWriter.close();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        printSummary(seconds);
+    }
+
+    private void processFile(Path file) {
+        String fileName = file.getFileName().toString();
+        try {
+            ExtractionResult result;
+            if (conllMode) {
+                BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+                try {
+                    result = extractor.extractFromCoNLL(br);
+                } finally {
+                    br.close();
+                }
+            } else {
+                result = extractor.extractFromText(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+
+            //Writes to a temporary file first, so an interrupted run never leaves a partial output file behind
+            Path outputFile = outputDirectory.resolve(fileName);
+            Path temporaryFile = outputDirectory.resolve(fileName + ".tmp");
+            PrintWriter writer = new PrintWriter(temporaryFile.toFile(), "UTF-8");
+            try {
+                result.writeAsCoNLL(writer);
+            } finally {
+                writer.close();
+            }
+            Files.move(temporaryFile, outputFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            for (BaseNounPhraseSink sink : sinks) {
+                result.sendTo(sink);
+            }
+            //A file may already be in the store, if the previous run ended before recording it in the manifest
+            if (store != null && !store.containsDocument(fileName)) {
+                store.add(fileName, result.getBaseNounPhrases());
+                store.flush();
+            }
+            PhraseAggregator fileCounts = null;
+            if (aggregator != null) {
+                fileCounts = new PhraseAggregator();
+                result.sendTo(fileCounts);
+                writePartialCounts(fileName, fileCounts);
+            }
+
+            markCompleted(fileName);
+            if (fileCounts != null) {
+                aggregator.merge(fileCounts);
+            }
+
+            processedFiles.incrementAndGet();
+            sentences.addAndGet(result.getTaggedSentences().size());
+            tokens.addAndGet(result.getNumberOfTokens());
+            baseNounPhrases.addAndGet(result.getBaseNounPhrases().size());
+        } catch (IOException e) {
+            failedFiles.incrementAndGet();
+            System.out.println("Could not process " + fileName + ": " + e.getMessage());
+        } catch (RuntimeException e) {
+            failedFiles.incrementAndGet();
+            System.out.println("Could not process " + fileName + ": " + e);
+        }
+    }
+
+    private Set<String> readManifest() throws IOException {
+        Set<String> completedFiles = new HashSet<String>();
+        if (Files.exists(manifestPath)) {
+            for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+                if (!line.isEmpty()) {
+                    completedFiles.add(line);
+                }
+            }
+        }
+        return completedFiles;
+    }
+
+    private Path getPartialCountsFile(String fileName) {
+        return partialCountsDirectory.resolve(fileName + ".counts");
+    }
+
+    private void writePartialCounts(String fileName, PhraseAggregator fileCounts) throws IOException {
+        Path partialCountsFile = getPartialCountsFile(fileName);
+        Path temporaryFile = partialCountsDirectory.resolve(fileName + ".counts.tmp");
+        OutputStream out = Files.newOutputStream(temporaryFile);
+        try {
+            fileCounts.writeTo(out);
+        } finally {
+            out.close();
+        }
+        Files.move(temporaryFile, partialCountsFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Adds the saved counts of the completed files to the aggregator.
+     * Completed files without saved counts, e.g. from a run without aggregation, are removed from the completed files, so they are processed again
+     */
+    private void readPartialCounts(Set<String> completedFiles) throws IOException {
+        int restoredFiles = 0;
+        Iterator<String> iterator = completedFiles.iterator();
+        while (iterator.hasNext()) {
+            Path partialCountsFile = getPartialCountsFile(iterator.next());
+            if (!Files.exists(partialCountsFile)) {
+                iterator.remove();
+                continue;
+            }
+            InputStream in = Files.newInputStream(partialCountsFile);
+            try {
+                aggregator.merge(PhraseAggregator.readFrom(in));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("The counts in " + partialCountsFile + " can not be merged: " + e.getMessage(), e);
+            } finally {
+                in.close();
+            }
+            restoredFiles++;
+        }
+        if (restoredFiles > 0) {
+            System.out.println("Restored the counts of " + restoredFiles + " completed files from " + partialCountsDirectory);
+        }
+    }
+
+    private synchronized void markCompleted(String fileName) throws IOException {
+        manifestWriter.write(fileName + "\n");
+        manifestWriter.flush();
+    }
+
+    private void printSummary(double seconds) {
+        System.out.println("Files:      " + processedFiles.get() + " processed, " + failedFiles.get() + " failed");
+        System.out.println("Sentences:  " + sentences.get());
+        System.out.println("Phrases:    " + baseNounPhrases.get());
+        System.out.println("Tokens:     " + tokens.get());
+        System.out.println("Time:       " + String.format("%.1f", seconds) + " s with " + numberOfWorkers + " workers");
+        System.out.println("Throughput: " + String.format("%.0f", tokens.get() / seconds) + " tokens/s, "
+                + String.format("%.1f", sentences.get() / seconds) + " sentences/s");
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> options = new HashMap<String, String>();
+        if (args.length % 2 != 0) {
+            printUsage();
+            return;
+        }
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                printUsage();
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (!options.containsKey("model") || !options.containsKey("input") || !options.containsKey("output")) {
+            printUsage();
+            return;
+        }
+        if (options.containsKey("positive-rules") != options.containsKey("rejection-rules")) {
+            System.out.println("--positive-rules and --rejection-rules have to be given together");
+            printUsage();
+            return;
+        }
+        //Output files in the input directory would be read as input by the next run
+        Path inputDirectory = Paths.get(options.get("input")).toAbsolutePath().normalize();
+        Path outputDirectory = Paths.get(options.get("output")).toAbsolutePath().normalize();
+        if (outputDirectory.startsWith(inputDirectory)) {
+            System.out.println("The output directory " + outputDirectory + " must not be the input directory or inside of it");
+            printUsage();
+            return;
+        }
+
+        String mode = options.containsKey("mode") ? options.get("mode") : "text";
+        if (!mode.equals("text") && !mode.equals("conll")) {
+            printUsage();
+            return;
+        }
+        int numberOfWorkers = options.containsKey("workers") ? Integer.parseInt(options.get("workers")) : Runtime.getRuntime().availableProcessors();
+
+        POSBasedBaseNounPhraseExtractor extractor;
+        if (options.containsKey("positive-rules") && options.containsKey("rejection-rules")) {
+            extractor = new POSBasedBaseNounPhraseExtractor(options.get("model"),
+                    RuleSource.fromFile(options.get("positive-rules")), RuleSource.fromFile(options.get("rejection-rules")));
+        } else {
+            extractor = new POSBasedBaseNounPhraseExtractor(options.get("model"));
+        }
+        extractor.setVerbose(false);
+
+        Path manifestPath = options.containsKey("manifest") ? Paths.get(options.get("manifest")) : outputDirectory.resolve(DEFAULT_MANIFEST_NAME);
+
+        BatchRunner batchRunner = new BatchRunner(extractor, inputDirectory, outputDirectory, mode.equals("conll"), numberOfWorkers, manifestPath);
+
+        OffHeapPhraseStore store = null;
+        if (options.containsKey("store")) {
+            store = new OffHeapPhraseStore(Paths.get(options.get("store")));
+            batchRunner.setStore(store);
+        }
+        PhraseAggregator aggregator = null;
+        if (options.containsKey("aggregate")) {
+            if (options.containsKey("heavy-hitters")) {
+                aggregator = new PhraseAggregator(AGGREGATION_SKETCH_WIDTH, AGGREGATION_SKETCH_DEPTH, Integer.parseInt(options.get("heavy-hitters")));
+            } else {
+                aggregator = new PhraseAggregator();
+            }
+            batchRunner.setAggregator(aggregator, Paths.get(options.get("aggregate") + PARTIAL_COUNTS_SUFFIX));
+        }
+
+        try {
+            batchRunner.run();
+
+            if (store != null) {
+                System.out.println("Stored " + store.size() + " phrases of " + store.getNumberOfDocuments() + " files with "
+                        + store.getNumberOfStrings() + " different phrases and heads");
+                System.out.println("Most frequent heads:");
+                for (Map.Entry<String, Long> head : store.getTopHeads(10)) {
+                    System.out.println("  " + head.getValue() + "\t" + head.getKey());
+                }
+            }
+            if (aggregator != null) {
+                Path temporaryFile = Paths.get(options.get("aggregate") + ".tmp");
+                OutputStream out = Files.newOutputStream(temporaryFile);
+                try {
+                    aggregator.writeTo(out);
+                } finally {
+                    out.close();
+                }
+                Files.move(temporaryFile, Paths.get(options.get("aggregate")), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                System.out.println("Counted " + aggregator.getNumberOfPhrases() + " phrases with " + aggregator.getNumberOfDifferentPhrases()
+                        + " different phrases and " + aggregator.getNumberOfDifferentHeads() + " different heads in " + options.get("aggregate"));
+            }
+        } finally {
+            if (store != null) {
+                store.close();
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: BatchRunner --model path --input dir --output dir [--mode text|conll] [--workers n]");
+        System.out.println("                   [--positive-rules path --rejection-rules path] [--manifest path] [--store dir]");
+        System.out.println("                   [--aggregate file [--heavy-hitters k]]");
+    }
+}
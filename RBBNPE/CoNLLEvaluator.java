@@ -0,0 +1,390 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import edu.stanford.nlp.ling.TaggedWord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Evaluates the extractor on data in the CoNLL-2000 format, e.g. section 20 of the WSJ data set.
+ * The tokens are in the first column and the gold chunk tags (B-NP, I-NP, O, B-VP, ...) in the last column.
+ * Reports precision, recall and F1 of the base noun phrases together with the speed and the allocation rate,
+ * so every change of the rules or the rule engine can be checked for both.
+ *
+ * The outputs of two configurations of the extractor can also be compared token by token,
+ * e.g. with and without the prefilter or with two different rules files.
+ *
+ * The program exits with status 1, if the F1-score is below --min-f1 or if the two configurations differ,
+ * so it can be used as a regression gate.
+ *
+ * Usage: CoNLLEvaluator --model path --gold path [--positive-rules path --rejection-rules path]
+ *                       [--runs n] [--warmup n] [--min-f1 percent]
+ *                       [--diff prefilter | --diff-positive-rules path --diff-rejection-rules path]
+ */
+public class CoNLLEvaluator {
+
+    /**
+     * Number of differing sentences printed by a comparison
+     */
+    private static final int MAX_PRINTED_DIFFERENCES = 20;
+
+    /**
+     * The counts of base noun phrases, from which precision, recall and F1 are computed
+     */
+    public static class Scores {
+        private final int goldPhrases;
+        private final int predictedPhrases;
+        private final int correctPhrases;
+
+        Scores(int goldPhrases, int predictedPhrases, int correctPhrases) {
+            this.goldPhrases = goldPhrases;
+            this.predictedPhrases = predictedPhrases;
+            this.correctPhrases = correctPhrases;
+        }
+
+        public double getPrecision() {
+            return predictedPhrases == 0 ? 0 : 100.0 * correctPhrases / predictedPhrases;
+        }
+
+        public double getRecall() {
+            return goldPhrases == 0 ? 0 : 100.0 * correctPhrases / goldPhrases;
+        }
+
+        public double getF1() {
+            double precision = getPrecision();
+            double recall = getRecall();
+            return precision + recall == 0 ? 0 : 2 * precision * recall / (precision + recall);
+        }
+
+        public int getGoldPhrases() {
+            return goldPhrases;
+        }
+
+        public int getPredictedPhrases() {
+            return predictedPhrases;
+        }
+
+        public int getCorrectPhrases() {
+            return correctPhrases;
+        }
+    }
+
+    /**
+     * A setting of the extractor, which is applied before one side of a comparison is extracted
+     */
+    public interface Configuration {
+        void apply(POSBasedBaseNounPhraseExtractor extractor) throws IOException;
+    }
+
+    private final POSBasedBaseNounPhraseExtractor extractor;
+
+
+    public CoNLLEvaluator(POSBasedBaseNounPhraseExtractor extractor) {
+        this.extractor = extractor;
+    }
+
+    /**
+     * Extracts the base noun phrases of the gold file several times and prints the scores, the speed and the allocation rate
+     *
+     * @param goldFile   file in the CoNLL-2000 format
+     * @param warmupRuns runs before the measurement, so the JIT compiler has optimised the code
+     * @param runs       measured runs
+     * @return the scores of the last run
+     * @throws IOException
+     */
+    public Scores evaluate(Path goldFile, int warmupRuns, int runs) throws IOException {
+        List<List<String>> goldChunkTags = readGoldChunkTags(goldFile);
+
+        for (int i = 0; i < warmupRuns; i++) {
+            extract(goldFile);
+        }
+
+        ExtractionResult result = null;
+        long allocatedBytesBefore = getAllocatedBytesOfAllThreads();
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            result = extract(goldFile);
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        long allocatedBytes = getAllocatedBytesOfAllThreads() - allocatedBytesBefore;
+
+        Scores scores = score(goldChunkTags, result.getChunkTags());
+
+        int sentences = countSentences(result);
+        int tokens = result.getNumberOfTokens();
+        System.out.println("Sentences:  " + sentences + ", tokens: " + tokens);
+        System.out.println("Base NPs:   " + scores.getGoldPhrases() + " gold, " + scores.getPredictedPhrases() + " found, " + scores.getCorrectPhrases() + " correct");
+        System.out.println(String.format("Precision:  %.2f%%, recall: %.2f%%, F1: %.2f%%", scores.getPrecision(), scores.getRecall(), scores.getF1()));
+        System.out.println(String.format("Speed:      %.1f sentences/s, %.0f tokens/s (%d runs after %d warmup runs)",
+                sentences * runs / seconds, tokens * runs / seconds, runs, warmupRuns));
+        if (allocatedBytes >= 0) {
+            System.out.println(String.format("Allocation: %.1f MB/s, %.1f KB/sentence",
+                    allocatedBytes / seconds / (1024 * 1024), allocatedBytes / 1024.0 / Math.max(1, sentences * runs)));
+        }
+        return scores;
+    }
+
+    /**
+     * Extracts the base noun phrases of the file with two configurations and prints the sentences with different chunk tags
+     *
+     * @param file           file in the CoNLL format
+     * @param configurationA applied before the first extraction
+     * @param configurationB applied before the second extraction
+     * @return number of sentences with different chunk tags
+     * @throws IOException
+     */
+    public int compare(Path file, Configuration configurationA, Configuration configurationB) throws IOException {
+        configurationA.apply(extractor);
+        ExtractionResult resultA = extract(file);
+        configurationB.apply(extractor);
+        ExtractionResult resultB = extract(file);
+
+        List<List<String>> chunkTagsA = resultA.getChunkTags();
+        List<List<String>> chunkTagsB = resultB.getChunkTags();
+        List<List<TaggedWord>> taggedSentences = resultA.getTaggedSentences();
+
+        int differentSentences = 0;
+        for (int s = 0; s < chunkTagsA.size(); s++) {
+            if (!chunkTagsA.get(s).equals(chunkTagsB.get(s))) {
+                differentSentences++;
+                if (differentSentences <= MAX_PRINTED_DIFFERENCES) {
+                    StringBuilder difference = new StringBuilder("Sentence " + s + ":");
+                    List<TaggedWord> sentence = taggedSentences.get(s);
+                    for (int i = 0; i < sentence.size(); i++) {
+                        difference.append(" ").append(sentence.get(i)).append("/").append(chunkTagsA.get(s).get(i));
+                        if (!chunkTagsA.get(s).get(i).equals(chunkTagsB.get(s).get(i))) {
+                            difference.append("->").append(chunkTagsB.get(s).get(i));
+                        }
+                    }
+                    System.out.println(difference);
+                }
+            }
+        }
+        System.out.println(differentSentences + " of " + chunkTagsA.size() + " sentences differ");
+        return differentSentences;
+    }
+
+    private ExtractionResult extract(Path file) throws IOException {
+        BufferedReader br = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        try {
+            return extractor.extractFromCoNLL(br);
+        } finally {
+            br.close();
+        }
+    }
+
+    /**
+     * Reads the chunk tags in the last column and reduces them to B, I and O of noun phrases.
+     * Sentences are split the same way as by extractFromCoNLL, so both align
+     *
+     * @param goldFile file in the CoNLL-2000 format
+     * @return one list of chunk tags for each sentence
+     * @throws IOException
+     */
+    public static List<List<String>> readGoldChunkTags(Path goldFile) throws IOException {
+        List<List<String>> chunkTags = new ArrayList<List<String>>();
+        List<String> chunkTagsOfSentence = new ArrayList<String>();
+
+        for (String currentLine : Files.readAllLines(goldFile, StandardCharsets.UTF_8)) {
+            if (!currentLine.equals("") && !currentLine.contains("\t\t")) {
+
+                String[] argumentsInLine = currentLine.split(" ");
+
+                if (argumentsInLine.length <= 2) {
+                    argumentsInLine = currentLine.split("\t");
+                }
+
+                String chunkTag = argumentsInLine[argumentsInLine.length - 1];
+                if (chunkTag.equals("B-NP")) {
+                    chunkTagsOfSentence.add("B");
+                } else if (chunkTag.equals("I-NP")) {
+                    chunkTagsOfSentence.add("I");
+                } else {
+                    chunkTagsOfSentence.add("O");
+                }
+            } else if (currentLine.equals("") || currentLine.equals("\t\t")) {
+                chunkTags.add(chunkTagsOfSentence);
+                chunkTagsOfSentence = new ArrayList<String>();
+            }
+        }
+        chunkTags.add(chunkTagsOfSentence);
+        return chunkTags;
+    }
+
+    /**
+     * Compares the phrases of gold and predicted chunk tags. A phrase is only correct, if it has exactly the same tokens
+     *
+     * @param goldChunkTags      chunk tags of the gold data
+     * @param predictedChunkTags chunk tags of the extractor
+     * @return the scores
+     */
+    public static Scores score(List<List<String>> goldChunkTags, List<List<String>> predictedChunkTags) {
+        if (goldChunkTags.size() != predictedChunkTags.size()) {
+            System.out.println("Number of sentences differs: " + goldChunkTags.size() + " gold, " + predictedChunkTags.size() + " extracted");
+        }
+        Set<String> goldPhrases = getPhrases(goldChunkTags);
+        Set<String> predictedPhrases = getPhrases(predictedChunkTags);
+
+        int correctPhrases = 0;
+        for (String phrase : predictedPhrases) {
+            if (goldPhrases.contains(phrase)) {
+                correctPhrases++;
+            }
+        }
+        return new Scores(goldPhrases.size(), predictedPhrases.size(), correctPhrases);
+    }
+
+    /**
+     * Returns the spans of all phrases as "sentence:first token:last token".
+     * Like in the conlleval script an I following an O also starts a phrase
+     */
+    private static Set<String> getPhrases(List<List<String>> chunkTags) {
+        Set<String> phrases = new HashSet<String>();
+        for (int s = 0; s < chunkTags.size(); s++) {
+            List<String> chunkTagsOfSentence = chunkTags.get(s);
+            int start = -1;
+            for (int i = 0; i <= chunkTagsOfSentence.size(); i++) {
+                String chunkTag = i < chunkTagsOfSentence.size() ? chunkTagsOfSentence.get(i) : "O";
+                if (start >= 0 && !chunkTag.equals("I")) {
+                    phrases.add(s + ":" + start + ":" + (i - 1));
+                    start = -1;
+                }
+                if (chunkTag.equals("B") || (chunkTag.equals("I") && start < 0)) {
+                    start = i;
+                }
+            }
+        }
+        return phrases;
+    }
+
+    private static int countSentences(ExtractionResult result) {
+        int sentences = 0;
+        for (List<TaggedWord> taggedSentence : result.getTaggedSentences()) {
+            if (!taggedSentence.isEmpty()) {
+                sentences++;
+            }
+        }
+        return sentences;
+    }
+
+    /**
+     * Sums the bytes allocated by all living threads. Threads, which ended in between, are not counted
+     *
+     * @return allocated bytes or -1, if the JVM can not measure them
+     */
+    private static long getAllocatedBytesOfAllThreads() {
+        java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationMXBean.isThreadAllocatedMemorySupported() || !allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        long allocatedBytes = 0;
+        for (long bytes : allocationMXBean.getThreadAllocatedBytes(threadMXBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                allocatedBytes += bytes;
+            }
+        }
+        return allocatedBytes;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (!args[i].startsWith("--")) {
+                printUsage();
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+        if (!options.containsKey("model") || !options.containsKey("gold")) {
+            printUsage();
+            return;
+        }
+
+        POSBasedBaseNounPhraseExtractor extractor;
+        if (options.containsKey("positive-rules") && options.containsKey("rejection-rules")) {
+            extractor = new POSBasedBaseNounPhraseExtractor(options.get("model"),
+                    RuleSource.fromFile(options.get("positive-rules")), RuleSource.fromFile(options.get("rejection-rules")));
+        } else {
+            extractor = new POSBasedBaseNounPhraseExtractor(options.get("model"));
+        }
+        extractor.setVerbose(false);
+
+        CoNLLEvaluator evaluator = new CoNLLEvaluator(extractor);
+        Path goldFile = Paths.get(options.get("gold"));
+        boolean passed = true;
+
+        int runs = options.containsKey("runs") ? Integer.parseInt(options.get("runs")) : 3;
+        int warmupRuns = options.containsKey("warmup") ? Integer.parseInt(options.get("warmup")) : 1;
+        Scores scores = evaluator.evaluate(goldFile, warmupRuns, runs);
+
+        if (options.containsKey("min-f1") && scores.getF1() < Double.parseDouble(options.get("min-f1"))) {
+            System.out.println("F1-score is below " + options.get("min-f1") + "%");
+            passed = false;
+        }
+
+        int differentSentences = 0;
+        if ("prefilter".equals(options.get("diff"))) {
+            System.out.println("Comparing without and with prefilter");
+            differentSentences = evaluator.compare(goldFile, new Configuration() {
+                public void apply(POSBasedBaseNounPhraseExtractor extractor) {
+                    extractor.setPrefilterEnabled(false);
+                }
+            }, new Configuration() {
+                public void apply(POSBasedBaseNounPhraseExtractor extractor) {
+                    extractor.setPrefilterEnabled(true);
+                }
+            });
+        } else if (options.containsKey("diff-positive-rules") && options.containsKey("diff-rejection-rules")) {
+            final RuleSource positiveRuleSource = extractor.getPositiveRuleSource();
+            final RuleSource rejectionRuleSource = extractor.getRejectionRuleSource();
+            final RuleSource otherPositiveRuleSource = RuleSource.fromFile(options.get("diff-positive-rules"));
+            final RuleSource otherRejectionRuleSource = RuleSource.fromFile(options.get("diff-rejection-rules"));
+            System.out.println("Comparing " + positiveRuleSource + " and " + otherPositiveRuleSource);
+            differentSentences = evaluator.compare(goldFile, new Configuration() {
+                public void apply(POSBasedBaseNounPhraseExtractor extractor) throws IOException {
+                    extractor.setRuleSources(positiveRuleSource, rejectionRuleSource);
+                }
+            }, new Configuration() {
+                public void apply(POSBasedBaseNounPhraseExtractor extractor) throws IOException {
+                    extractor.setRuleSources(otherPositiveRuleSource, otherRejectionRuleSource);
+                }
+            });
+        }
+        if (differentSentences > 0) {
+            passed = false;
+        }
+
+        if (!passed) {
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: CoNLLEvaluator --model path --gold path [--positive-rules path --rejection-rules path]");
+        System.out.println("                      [--runs n] [--warmup n] [--min-f1 percent]");
+        System.out.println("                      [--diff prefilter | --diff-positive-rules path --diff-rejection-rules path]");
+    }
+}
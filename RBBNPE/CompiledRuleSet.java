@@ -0,0 +1,338 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * This class holds the positive and rejection rules after they have been read and compiled.
+ * A compiled rule set never changes. To change the rules a new one is compiled and swapped in,
+ * so an extraction which already started keeps working with the rules it started with
+ */
+public class CompiledRuleSet {
+
+    private static final AtomicLong versionCounter = new AtomicLong();
+
+    /**
+     * Upper bound for the number of cached patterns with only some of the positive rules
+     */
+    private static final int MAX_NARROWED_PATTERNS = 256;
+
+    private final RuleSource positiveRuleSource;
+    private final RuleSource rejectionRuleSource;
+
+    private final List<String> positiveRules;
+    private final Pattern positiveRulesPattern;
+    private final List<RejectionRule> rejectionRules;
+
+    private final HeadRules headRules;
+
+    private final RulePrefilter prefilter;
+    private final ConcurrentHashMap<Long, Pattern> narrowedPatterns = new ConcurrentHashMap<Long, Pattern>();
+
+    private final long version;
+
+    private CompiledRuleSet(RuleSource positiveRuleSource, RuleSource rejectionRuleSource, List<String> positiveRules, List<RejectionRule> rejectionRules,
+                            HeadRules headRules, String[] tagSet) {
+        this.positiveRuleSource = positiveRuleSource;
+        this.rejectionRuleSource = rejectionRuleSource;
+        this.positiveRules = Collections.unmodifiableList(positiveRules);
+        this.positiveRulesPattern = Pattern.compile(combineRules(positiveRules, -1L));
+        this.rejectionRules = Collections.unmodifiableList(rejectionRules);
+        this.headRules = headRules;
+        this.prefilter = new RulePrefilter(positiveRules, tagSet);
+        this.version = versionCounter.incrementAndGet();
+    }
+
+    /**
+     * Reads both rule sources and compiles them
+     *
+     * @param positiveRuleSource  source of the positive rules
+     * @param rejectionRuleSource source of the rejection rules
+     * @return the compiled rule set
+     * @throws IOException if one of the sources can not be read
+     * @throws java.util.regex.PatternSyntaxException if the positive rules do not form a valid RegEx
+     */
+    public static CompiledRuleSet compile(RuleSource positiveRuleSource, RuleSource rejectionRuleSource) throws IOException {
+        return compile(positiveRuleSource, rejectionRuleSource, null, RulePrefilter.PENN_TREEBANK_TAGS);
+    }
+
+    /**
+     * Reads the rule sources and compiles them for a POS tag set other than the one of the Penn Treebank
+     *
+     * @param positiveRuleSource  source of the positive rules
+     * @param rejectionRuleSource source of the rejection rules
+     * @param headRuleSource      source of the head rules or null for the rules by Collins
+     * @param tagSet              all POS tags the tagger assigns, used by the prefilter
+     * @return the compiled rule set
+     * @throws IOException if one of the sources can not be read
+     * @throws java.util.regex.PatternSyntaxException if the positive rules do not form a valid RegEx
+     */
+    public static CompiledRuleSet compile(RuleSource positiveRuleSource, RuleSource rejectionRuleSource, RuleSource headRuleSource, String[] tagSet) throws IOException {
+        ArrayList<String> positiveRules = getPositiveRules(positiveRuleSource);
+        ArrayList<RejectionRule> rejectionRules = getRejectionRules(rejectionRuleSource);
+        HeadRules headRules = headRuleSource != null ? HeadRules.read(headRuleSource) : HeadRules.COLLINS;
+
+        return new CompiledRuleSet(positiveRuleSource, rejectionRuleSource, positiveRules, rejectionRules, headRules, tagSet);
+    }
+
+    /**
+     * Returns the pattern of all positive rules combined. Patterns are thread safe, matchers are not
+     *
+     * @return Pattern of the positive rules
+     */
+    public Pattern getPositiveRulesPattern() {
+        return positiveRulesPattern;
+    }
+
+    /**
+     * Returns the pattern of only those positive rules, which can match a sentence with the given tags.
+     * Rules, which can not match, are left out of the pattern, which does not change the matches of the other rules
+     *
+     * @param tagMask bitmask of the tags in the sentence as created by the prefilter
+     * @return Pattern of the rules, which can match, or null if no rule can match
+     */
+    public Pattern getPositiveRulesPattern(long tagMask) {
+        if (!prefilter.isEnabled()) {
+            return positiveRulesPattern;
+        }
+        long activeRules = prefilter.getActiveRules(tagMask);
+        if (activeRules == 0) {
+            return null;
+        }
+        if (activeRules == prefilter.getAllRules()) {
+            return positiveRulesPattern;
+        }
+
+        Pattern narrowedPattern = narrowedPatterns.get(activeRules);
+        if (narrowedPattern == null) {
+            if (narrowedPatterns.size() >= MAX_NARROWED_PATTERNS) {
+                return positiveRulesPattern; //Compiling a pattern for a rare combination costs more than matching all rules
+            }
+            narrowedPattern = Pattern.compile(combineRules(positiveRules, activeRules));
+            Pattern previousPattern = narrowedPatterns.putIfAbsent(activeRules, narrowedPattern);
+            if (previousPattern != null) {
+                narrowedPattern = previousPattern;
+            }
+        }
+        return narrowedPattern;
+    }
+
+    /**
+     * Returns the rules, which find the heads of the extracted phrases
+     *
+     * @return HeadRules of this rule set
+     */
+    public HeadRules getHeadRules() {
+        return headRules;
+    }
+
+    /**
+     * Returns the prefilter, which creates the tag bitmasks of sentences
+     *
+     * @return RulePrefilter of the positive rules
+     */
+    public RulePrefilter getPrefilter() {
+        return prefilter;
+    }
+
+    /**
+     * Returns the positive rules with all placeholders substituted, in the order they are checked
+     *
+     * @return List of the rules as RegEx Strings
+     */
+    public List<String> getPositiveRules() {
+        return positiveRules;
+    }
+
+    List<RejectionRule> getRejectionRules() {
+        return rejectionRules;
+    }
+
+    public RuleSource getPositiveRuleSource() {
+        return positiveRuleSource;
+    }
+
+    public RuleSource getRejectionRuleSource() {
+        return rejectionRuleSource;
+    }
+
+    /**
+     * Returns the version of this rule set. Every compilation gets a higher version than the ones before
+     *
+     * @return version as long
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Extracts the RegEx Strings of all rules from the rules files
+     * Substitues all placeholders accordingly
+     *
+     * @param ruleSource
+     * @return List of the RegEx Strings of the rules
+     * @throws IOException
+     */
+    private static ArrayList<String> getPositiveRules(RuleSource ruleSource) throws IOException {
+
+        BufferedReader br = ruleSource.openReader();
+        String currentLine;
+
+        ArrayList<String> rules = new ArrayList<String>();
+        HashMap<String, String> dictionaryOfRules = new HashMap<String, String>();
+
+        Pattern ruleNamePattern = Pattern.compile("([^\\s]+)(?:[\\;]{2}(?=[^@]))");
+        Matcher ruleNameMatcher = ruleNamePattern.matcher("");
+
+        /**
+         * Creates dictionary with rules and their names
+         */
+
+        try {
+            while (null != (currentLine = br.readLine())) { //first rules in file are checked first
+                if (!currentLine.isEmpty() && !currentLine.substring(0, 1).equals("#")) {
+
+                    rules.add(currentLine);
+
+                    for (int i = 0; i < rules.size(); i++) {
+
+                        String ruleLine = rules.get(i);
+                        ruleNameMatcher.reset(ruleLine);
+
+                        if (ruleNameMatcher.find()) {
+
+                            String ruleName = ruleNameMatcher.group(0);
+                            String rule = ruleLine.replaceAll(ruleName, "");
+
+                            dictionaryOfRules.put(ruleName.replaceAll("\\;\\;", ""), rule);
+
+                            rules.remove(i);
+                            rules.add(i, rule);
+
+                        }
+                    }
+                }
+            }
+        } finally {
+            br.close();
+        }
+
+        /**
+         * Replaces rule placeholders with the actual rules
+         */
+        Pattern ruleReplacementPattern = Pattern.compile(";@[^\\s]+?@;");
+        Matcher ruleReplacementMatcher = ruleReplacementPattern.matcher("");
+
+        for (int i = 0; i < rules.size(); i++) {
+
+            String rule = rules.get(i);
+            ruleReplacementMatcher.reset(rule);
+
+            while (ruleReplacementMatcher.find()) {
+
+                String ruleNameToken = ruleReplacementMatcher.group(0);
+                String ruleName = ruleNameToken.replaceAll("(@;|;@)", "");
+
+                String ruleToInsert = dictionaryOfRules.get(ruleName);
+
+                rule = rule.replace(ruleNameToken, ruleToInsert);
+                ruleReplacementMatcher.reset(rule);
+
+            }
+
+            rules.set(i, rule);
+        }
+
+        return rules;
+    }
+
+    /**
+     * Creates final Regex
+     *
+     * @param rules       the rules with all placeholders substituted
+     * @param activeRules bitmask of the rules to include, the first rule being the lowest bit
+     * @return RegEx String with the included rules as alternatives in their original order
+     */
+    private static String combineRules(List<String> rules, long activeRules) {
+        String rulesRegEx = "(";
+
+        for (int i = 0; i < rules.size(); i++) {
+            if (i < RulePrefilter.MAX_RULES && (activeRules & (1L << i)) == 0) {
+                continue;
+            }
+
+            String rule = "(" + rules.get(i) + ")";
+            if (!rulesRegEx.equals("(")) {
+                rulesRegEx = rulesRegEx + "|" + rule;
+            } else {
+                rulesRegEx = rulesRegEx + rule;
+            }
+        }
+
+        rulesRegEx = rulesRegEx + ")";
+        return rulesRegEx;
+    }
+
+    /**
+     * Extracts the List of Rejection Rules from the rejection rules files
+     * Substitues all placeholders accordingly
+     * Organizes Rules by their key/delimiter
+     *
+     * @param ruleSource
+     * @return List of RejectionRule Objects
+     * @throws IOException
+     */
+    private static ArrayList<RejectionRule> getRejectionRules(RuleSource ruleSource) throws IOException {
+        BufferedReader br = ruleSource.openReader();
+        String currentLine;
+
+        ArrayList<RejectionRule> allRules = new ArrayList<RejectionRule>();
+        RejectionRule rule = null;
+
+        try {
+            while (null != (currentLine = br.readLine())) { //first rules in file are checked first
+                if (currentLine.isEmpty()) {
+                    continue;
+                }
+                String firstCharacter = currentLine.substring(0, 1);
+                if (!firstCharacter.equals("#")) {
+
+                    if (firstCharacter.equals("∞")) {
+                        String key = currentLine.substring(1, currentLine.lastIndexOf("∞"));
+                        String operation = currentLine.substring(currentLine.indexOf(";") + 1, currentLine.lastIndexOf(";"));
+
+                        rule = new RejectionRule(key, operation);
+                        allRules.add(rule);
+                    } else if (rule != null) {
+                        rule.addRule(currentLine);
+                    }
+
+                }
+            }
+        } finally {
+            br.close();
+        }
+        return allRules;
+    }
+}
@@ -0,0 +1,159 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-min sketch: estimates the counts of Strings in a fixed amount of memory.
+ * The estimates are never too low and too high by at most 2 * total / width with a probability of 1 - 0.5^depth.
+ * Each row hashes the UTF-8 bytes of the String with a 64 bit hash (MurmurHash64A) and its own seed, so the rows collide independently.
+ * The seeds only depend on the row, so sketches of the same size from different processes can be merged
+ */
+class CountMinSketch {
+
+    private final int width;
+    private final int depth;
+    private final long[] seeds;
+    private final AtomicLongArray counts;
+
+    CountMinSketch(int width, int depth) {
+        if (width < 1 || depth < 1) {
+            throw new IllegalArgumentException("Width and depth of the sketch have to be positive");
+        }
+        if ((long) width * depth > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Sketch with " + width + "x" + depth + " cells is too large");
+        }
+        this.width = width;
+        this.depth = depth;
+        this.counts = new AtomicLongArray(width * depth);
+        this.seeds = new long[depth];
+        for (int row = 0; row < depth; row++) {
+            seeds[row] = mix((row + 1) * 0x9E3779B97F4A7C15L);
+        }
+    }
+
+    /**
+     * Adds occurrences of a String
+     *
+     * @return the estimated count of the String including these occurrences
+     */
+    long add(String string, long count) {
+        long estimate = Long.MAX_VALUE;
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.addAndGet(cell(bytes, row), count));
+        }
+        return estimate;
+    }
+
+    long estimate(String string) {
+        long estimate = Long.MAX_VALUE;
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts.get(cell(bytes, row)));
+        }
+        return estimate;
+    }
+
+    private int cell(byte[] bytes, int row) {
+        return row * width + (int) ((hash(bytes, seeds[row]) >>> 1) % width);
+    }
+
+    /**
+     * MurmurHash64A by Austin Appleby
+     */
+    private static long hash(byte[] bytes, long seed) {
+        final long m = 0xC6A4A7935BD1E995L;
+        final int r = 47;
+
+        long hash = seed ^ (bytes.length * m);
+        int end = bytes.length - (bytes.length & 7);
+        for (int i = 0; i < end; i += 8) {
+            long k = (bytes[i] & 0xFFL) | (bytes[i + 1] & 0xFFL) << 8 | (bytes[i + 2] & 0xFFL) << 16 | (bytes[i + 3] & 0xFFL) << 24
+                    | (bytes[i + 4] & 0xFFL) << 32 | (bytes[i + 5] & 0xFFL) << 40 | (bytes[i + 6] & 0xFFL) << 48 | (bytes[i + 7] & 0xFFL) << 56;
+            k *= m;
+            k ^= k >>> r;
+            k *= m;
+            hash ^= k;
+            hash *= m;
+        }
+        //The remaining bytes are read little endian like the blocks above
+        if (end < bytes.length) {
+            long k = 0;
+            for (int i = bytes.length - 1; i >= end; i--) {
+                k = k << 8 | (bytes[i] & 0xFFL);
+            }
+            hash ^= k;
+            hash *= m;
+        }
+        hash ^= hash >>> r;
+        hash *= m;
+        hash ^= hash >>> r;
+        return hash;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads the bits of the row number into a seed
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB9FE1A85EC53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    /**
+     * Adds the counts of another sketch with the same width and depth
+     */
+    void merge(CountMinSketch other) {
+        if (other.width != width || other.depth != depth) {
+            throw new IllegalArgumentException("Only sketches of the same size can be merged: "
+                    + width + "x" + depth + " and " + other.width + "x" + other.depth);
+        }
+        for (int i = 0; i < counts.length(); i++) {
+            counts.addAndGet(i, other.counts.get(i));
+        }
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getDepth() {
+        return depth;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(width);
+        out.writeInt(depth);
+        for (int i = 0; i < counts.length(); i++) {
+            out.writeLong(counts.get(i));
+        }
+    }
+
+    static CountMinSketch readFrom(DataInputStream in) throws IOException {
+        CountMinSketch sketch = new CountMinSketch(in.readInt(), in.readInt());
+        for (int i = 0; i < sketch.counts.length(); i++) {
+            sketch.counts.set(i, in.readLong());
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,135 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often and how long each stage of the extraction ran, and how much was processed.
+ * The counters can be updated from many threads at once
+ */
+public class ExtractionMetrics {
+
+    /**
+     * The stages every extraction goes through
+     */
+    public enum Stage {
+        TOKENIZING, TAGGING, POSITIVE_RULES, REJECTION_RULES
+    }
+
+    private final LongAdder[] nanosOfStage = new LongAdder[Stage.values().length];
+    private final LongAdder[] runsOfStage = new LongAdder[Stage.values().length];
+
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder sentences = new LongAdder();
+    private final LongAdder tokens = new LongAdder();
+    private final LongAdder baseNounPhrases = new LongAdder();
+
+    public ExtractionMetrics() {
+        for (int i = 0; i < nanosOfStage.length; i++) {
+            nanosOfStage[i] = new LongAdder();
+            runsOfStage[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a finished run of a stage
+     *
+     * @param stage      the stage which finished
+     * @param startNanos System.nanoTime() at the start of the stage
+     * @return System.nanoTime() at the end of the stage, to be used as start of the next stage
+     */
+    long recordStage(Stage stage, long startNanos) {
+        long endNanos = System.nanoTime();
+        nanosOfStage[stage.ordinal()].add(endNanos - startNanos);
+        runsOfStage[stage.ordinal()].increment();
+        return endNanos;
+    }
+
+    /**
+     * Records a finished extraction
+     */
+    void recordDocument(ExtractionResult result) {
+        documents.increment();
+        sentences.add(result.getTaggedSentences().size());
+        tokens.add(result.getNumberOfTokens());
+        baseNounPhrases.add(result.getBaseNounPhrases().size());
+    }
+
+    public long getNanos(Stage stage) {
+        return nanosOfStage[stage.ordinal()].sum();
+    }
+
+    public long getRuns(Stage stage) {
+        return runsOfStage[stage.ordinal()].sum();
+    }
+
+    public long getDocuments() {
+        return documents.sum();
+    }
+
+    public long getSentences() {
+        return sentences.sum();
+    }
+
+    public long getTokens() {
+        return tokens.sum();
+    }
+
+    public long getBaseNounPhrases() {
+        return baseNounPhrases.sum();
+    }
+
+    /**
+     * Sets all counters back to zero
+     */
+    public void reset() {
+        for (int i = 0; i < nanosOfStage.length; i++) {
+            nanosOfStage[i].reset();
+            runsOfStage[i].reset();
+        }
+        documents.reset();
+        sentences.reset();
+        tokens.reset();
+        baseNounPhrases.reset();
+    }
+
+    /**
+     * Returns the metrics as a JSON object. Times are in milliseconds
+     *
+     * @return JSON String
+     */
+    public String toJSON() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"documents\":").append(getDocuments());
+        json.append(",\"sentences\":").append(getSentences());
+        json.append(",\"tokens\":").append(getTokens());
+        json.append(",\"baseNounPhrases\":").append(getBaseNounPhrases());
+        json.append(",\"stages\":{");
+        for (Stage stage : Stage.values()) {
+            if (stage.ordinal() > 0) {
+                json.append(",");
+            }
+            json.append(JSONUtils.quote(stage.name())).append(":{\"runs\":").append(getRuns(stage));
+            json.append(",\"totalMillis\":").append(getNanos(stage) / 1000000.0).append("}");
+        }
+        json.append("}}");
+        return json.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJSON();
+    }
+}
@@ -0,0 +1,144 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import edu.stanford.nlp.ling.TaggedWord;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * This class holds the results of one extraction: the tagged sentences and the base noun phrases found in them.
+ * Every extraction creates its own result, so extractions can run concurrently on the same extractor
+ */
+public class ExtractionResult {
+
+    private final List<List<TaggedWord>> taggedSentences;
+    private final ArrayList<BaseNounPhrase> baseNounPhrases;
+    private final long ruleSetVersion;
+
+    ExtractionResult(List<List<TaggedWord>> taggedSentences, ArrayList<BaseNounPhrase> baseNounPhrases, long ruleSetVersion) {
+        this.taggedSentences = taggedSentences;
+        this.baseNounPhrases = baseNounPhrases;
+        this.ruleSetVersion = ruleSetVersion;
+    }
+
+    /**
+     * Returns the extracted base noun phrases as a List of BaseNounPhrase Objects
+     * The phrases are ordered by the index of their sentence and then by their first token
+     *
+     * @return ArrayList of BaseNounPhrase Objects
+     */
+    public ArrayList<BaseNounPhrase> getBaseNounPhrases() {
+        return baseNounPhrases;
+    }
+
+    /**
+     * Passes the extracted base noun phrases to a sink in the order of getBaseNounPhrases
+     *
+     * @param sink the sink, e.g. an OffHeapPhraseStore
+     */
+    public void sendTo(BaseNounPhraseSink sink) {
+        for (BaseNounPhrase baseNP : baseNounPhrases) {
+            sink.accept(baseNP);
+        }
+    }
+
+    public List<List<TaggedWord>> getTaggedSentences() {
+        return taggedSentences;
+    }
+
+    /**
+     * Returns the version of the rules used for this extraction
+     *
+     * @return version of the CompiledRuleSet
+     */
+    public long getRuleSetVersion() {
+        return ruleSetVersion;
+    }
+
+    /**
+     * Returns the number of tokens in all tagged sentences
+     *
+     * @return number of tokens
+     */
+    public int getNumberOfTokens() {
+        int numberOfTokens = 0;
+        for (List<TaggedWord> taggedSentence : taggedSentences) {
+            numberOfTokens += taggedSentence.size();
+        }
+        return numberOfTokens;
+    }
+
+    /**
+     * Assigns each token a chunk tag in the IOB2 format, only with baseNP information
+     * B marks the first token of a base noun phrase, I the following tokens of it and O all other tokens
+     *
+     * @return one list of chunk tags for each tagged sentence
+     */
+    public List<List<String>> getChunkTags() {
+
+        List<List<String>> chunkTags = new ArrayList<List<String>>(taggedSentences.size());
+        for (List<TaggedWord> sentence : taggedSentences) {
+            chunkTags.add(new ArrayList<String>(Collections.nCopies(sentence.size(), "O")));
+        }
+
+        //The tokens of a phrase are found by its sentence and first token, so the spacing of the tokens does not matter
+        for (BaseNounPhrase baseNP : baseNounPhrases) {
+            int sentenceIndex = baseNP.getSentenceIndex();
+            int startToken = baseNP.getStartToken();
+            if (sentenceIndex < 0 || startToken < 0) {
+                continue; //The phrase could not be found in its sentence
+            }
+            List<String> chunkTagsOfSentence = chunkTags.get(sentenceIndex);
+            int endToken = Math.min(startToken + baseNP.getPhraseString().split(" ").length, chunkTagsOfSentence.size());
+            chunkTagsOfSentence.set(startToken, "B");
+            for (int i = startToken + 1; i < endToken; i++) {
+                chunkTagsOfSentence.set(i, "I");
+            }
+        }
+        return chunkTags;
+    }
+
+    /**
+     * Writes the base noun phrases in the CoNLL Format
+     * 1. Column are the tokens
+     * 2. Column are the created POS Tags
+     * 3. Column are the chunk tags in the IOB2 format, only with baseNP information
+     *
+     * @param writer the writer to write to. It is not closed
+     */
+    public void writeAsCoNLL(PrintWriter writer) {
+
+        List<List<String>> chunkTags = getChunkTags();
+
+        for (int indexOfSentences = 0; indexOfSentences < taggedSentences.size(); indexOfSentences++) {
+
+            List<TaggedWord> sentence = taggedSentences.get(indexOfSentences);
+
+            for (int i = 0; i < sentence.size(); i++) {
+
+                if (i == 0 && indexOfSentences != 0) {
+                    writer.println(""); //Create space bewteen two sentences
+                }
+                TaggedWord word = sentence.get(i);
+
+                String line = word.word() + "\t" + word.tag() + "\t" + chunkTags.get(indexOfSentences).get(i);
+                writer.println(line);
+            }
+        }
+    }
+}
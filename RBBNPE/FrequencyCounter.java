@@ -0,0 +1,317 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts Strings concurrently, either exactly or with bounded memory.
+ * Exact counting keeps one LongAdder per String.
+ * Bounded counting estimates the counts with a CountMinSketch and only keeps the Strings with the highest estimates (heavy hitters)
+ */
+class FrequencyCounter {
+
+    private final LongAdder total = new LongAdder();
+
+    //Exact counting
+    private final ConcurrentHashMap<String, LongAdder> counts;
+
+    //Bounded counting
+    private final CountMinSketch sketch;
+    private final int numberOfHeavyHitters;
+    private final Set<String> heavyHitters;
+    private final PriorityQueue<HeavyHitter> lowestHeavyHitters;
+    private volatile long heavyHitterThreshold = 0;
+
+    /**
+     * A heavy hitter with its estimate, when it was last looked at. The estimate can only have grown since then
+     */
+    private static class HeavyHitter {
+        final String string;
+        long estimate;
+
+        HeavyHitter(String string, long estimate) {
+            this.string = string;
+            this.estimate = estimate;
+        }
+    }
+
+
+    /**
+     * Creates an exact counter
+     */
+    FrequencyCounter() {
+        this.counts = new ConcurrentHashMap<String, LongAdder>();
+        this.sketch = null;
+        this.numberOfHeavyHitters = 0;
+        this.heavyHitters = null;
+        this.lowestHeavyHitters = null;
+    }
+
+    /**
+     * Creates a bounded counter
+     *
+     * @param sketchWidth          width of the count-min sketch
+     * @param sketchDepth          depth of the count-min sketch
+     * @param numberOfHeavyHitters number of Strings with the highest counts, which are kept
+     */
+    FrequencyCounter(int sketchWidth, int sketchDepth, int numberOfHeavyHitters) {
+        if (numberOfHeavyHitters < 1) {
+            throw new IllegalArgumentException("At least one heavy hitter has to be kept");
+        }
+        this.counts = null;
+        this.sketch = new CountMinSketch(sketchWidth, sketchDepth);
+        this.numberOfHeavyHitters = numberOfHeavyHitters;
+        this.heavyHitters = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        this.lowestHeavyHitters = new PriorityQueue<HeavyHitter>(numberOfHeavyHitters + 1, new Comparator<HeavyHitter>() {
+            public int compare(HeavyHitter heavyHitter1, HeavyHitter heavyHitter2) {
+                return Long.compare(heavyHitter1.estimate, heavyHitter2.estimate);
+            }
+        });
+    }
+
+    boolean isBounded() {
+        return sketch != null;
+    }
+
+    void add(String string) {
+        add(string, 1);
+    }
+
+    void add(String string, long occurrences) {
+        total.add(occurrences);
+
+        if (!isBounded()) {
+            LongAdder count = counts.get(string);
+            if (count == null) {
+                LongAdder newCount = new LongAdder();
+                count = counts.putIfAbsent(string, newCount);
+                if (count == null) {
+                    count = newCount;
+                }
+            }
+            count.add(occurrences);
+            return;
+        }
+
+        long estimate = sketch.add(string, occurrences);
+        //Most occurrences are either of known heavy hitters or far below the threshold, so only few calls have to lock
+        if (!heavyHitters.contains(string) && (estimate > heavyHitterThreshold || heavyHitters.size() < numberOfHeavyHitters)) {
+            addHeavyHitter(string, estimate);
+        }
+    }
+
+    private synchronized void addHeavyHitter(String string, long estimate) {
+        if (!heavyHitters.add(string)) {
+            return;
+        }
+        lowestHeavyHitters.add(new HeavyHitter(string, estimate));
+        if (lowestHeavyHitters.size() <= numberOfHeavyHitters) {
+            return;
+        }
+        //Evicts the heavy hitter with the lowest estimate. The threshold is the lowest estimate of the remaining ones
+        heavyHitters.remove(peekLowestHeavyHitter().string);
+        lowestHeavyHitters.poll();
+        heavyHitterThreshold = peekLowestHeavyHitter().estimate;
+    }
+
+    /**
+     * Updates the estimates on top of the heap until the top is the heavy hitter with the lowest estimate.
+     * The estimates in the heap are never higher than the current ones, so only few of them have to be updated
+     */
+    private HeavyHitter peekLowestHeavyHitter() {
+        while (true) {
+            HeavyHitter lowest = lowestHeavyHitters.peek();
+            long estimate = sketch.estimate(lowest.string);
+            if (estimate == lowest.estimate) {
+                return lowest;
+            }
+            lowestHeavyHitters.poll();
+            lowest.estimate = estimate;
+            lowestHeavyHitters.add(lowest);
+        }
+    }
+
+    /**
+     * Replaces the heavy hitters, e.g. after merging or reading a sketch
+     */
+    private void setHeavyHitters(List<Map.Entry<String, Long>> top) {
+        heavyHitters.clear();
+        lowestHeavyHitters.clear();
+        for (Map.Entry<String, Long> entry : top) {
+            heavyHitters.add(entry.getKey());
+            lowestHeavyHitters.add(new HeavyHitter(entry.getKey(), entry.getValue()));
+        }
+        heavyHitterThreshold = top.size() < numberOfHeavyHitters ? 0 : top.get(top.size() - 1).getValue();
+    }
+
+    /**
+     * Returns the count of a String. For bounded counters this is an estimate, which may be too high
+     */
+    long getCount(String string) {
+        if (isBounded()) {
+            return sketch.estimate(string);
+        }
+        LongAdder count = counts.get(string);
+        return count == null ? 0 : count.sum();
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the number of different Strings, which are kept
+     */
+    int size() {
+        return isBounded() ? heavyHitters.size() : counts.size();
+    }
+
+    /**
+     * Returns the k Strings with the highest counts, most frequent first.
+     * Bounded counters return at most as many Strings as heavy hitters are kept
+     */
+    List<Map.Entry<String, Long>> getTop(int k) {
+        //Keeps the k largest counts in a heap with the smallest of them on top
+        PriorityQueue<Map.Entry<String, Long>> top = new PriorityQueue<Map.Entry<String, Long>>(Math.max(1, k), new Comparator<Map.Entry<String, Long>>() {
+            public int compare(Map.Entry<String, Long> entry1, Map.Entry<String, Long> entry2) {
+                return Long.compare(entry1.getValue(), entry2.getValue());
+            }
+        });
+        for (String string : isBounded() ? heavyHitters : counts.keySet()) {
+            long count = getCount(string);
+            if (top.size() < k) {
+                top.add(new AbstractMap.SimpleImmutableEntry<String, Long>(string, count));
+            } else if (k > 0 && count > top.peek().getValue()) {
+                top.poll();
+                top.add(new AbstractMap.SimpleImmutableEntry<String, Long>(string, count));
+            }
+        }
+
+        LinkedList<Map.Entry<String, Long>> result = new LinkedList<Map.Entry<String, Long>>();
+        while (!top.isEmpty()) {
+            result.addFirst(top.poll());
+        }
+        return new ArrayList<Map.Entry<String, Long>>(result);
+    }
+
+    /**
+     * Adds the counts of another counter, e.g. one read from a partial result of another process.
+     * Exact counts can be added to a bounded counter, but not the other way round
+     */
+    synchronized void merge(FrequencyCounter other) {
+        if (!isBounded() && other.isBounded()) {
+            throw new IllegalArgumentException("Bounded counts can not be added to exact counts");
+        }
+        if (isBounded() && !other.isBounded()) {
+            for (Map.Entry<String, LongAdder> entry : other.counts.entrySet()) {
+                add(entry.getKey(), entry.getValue().sum());
+            }
+            return;
+        }
+        total.add(other.getTotal());
+
+        if (!isBounded()) {
+            for (Map.Entry<String, LongAdder> entry : other.counts.entrySet()) {
+                LongAdder count = counts.get(entry.getKey());
+                if (count == null) {
+                    LongAdder newCount = new LongAdder();
+                    count = counts.putIfAbsent(entry.getKey(), newCount);
+                    if (count == null) {
+                        count = newCount;
+                    }
+                }
+                count.add(entry.getValue().sum());
+            }
+            return;
+        }
+
+        sketch.merge(other.sketch);
+        heavyHitters.addAll(other.heavyHitters);
+        setHeavyHitters(getTop(numberOfHeavyHitters));
+    }
+
+    synchronized void writeTo(DataOutputStream out) throws IOException {
+        out.writeBoolean(isBounded());
+        out.writeLong(getTotal());
+        if (isBounded()) {
+            out.writeInt(numberOfHeavyHitters);
+            sketch.writeTo(out);
+            List<String> strings = new ArrayList<String>(heavyHitters);
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                writeString(out, string);
+            }
+        } else {
+            List<Map.Entry<String, LongAdder>> entries = new ArrayList<Map.Entry<String, LongAdder>>(counts.entrySet());
+            out.writeInt(entries.size());
+            for (Map.Entry<String, LongAdder> entry : entries) {
+                writeString(out, entry.getKey());
+                out.writeLong(entry.getValue().sum());
+            }
+        }
+    }
+
+    static FrequencyCounter readFrom(DataInputStream in) throws IOException {
+        boolean bounded = in.readBoolean();
+        long total = in.readLong();
+        FrequencyCounter counter;
+        if (bounded) {
+            int numberOfHeavyHitters = in.readInt();
+            CountMinSketch sketch = CountMinSketch.readFrom(in);
+            counter = new FrequencyCounter(sketch.getWidth(), sketch.getDepth(), numberOfHeavyHitters);
+            counter.sketch.merge(sketch);
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                counter.heavyHitters.add(readString(in));
+            }
+            counter.setHeavyHitters(counter.getTop(numberOfHeavyHitters));
+        } else {
+            counter = new FrequencyCounter();
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                LongAdder count = new LongAdder();
+                counter.counts.put(readString(in), count);
+                count.add(in.readLong());
+            }
+        }
+        counter.total.add(total);
+        return counter;
+    }
+
+    /**
+     * Writes a String as its length and UTF-8 bytes. Unlike writeUTF this works for Strings of any length
+     */
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("Invalid length of a String: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
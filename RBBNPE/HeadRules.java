@@ -0,0 +1,145 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Table of rules, which find the head of a base noun phrase from the POS tags of its tokens.
+ * The rules are checked in order, the first rule finding a token determines the head. If no rule finds a token, the last token is the head.
+ *
+ * In a head rules file each line is one rule: a direction followed by POS tags, separated by whitespace. Lines starting with # are comments
+ * - last:  the last token, if it has one of the tags
+ * - right: the rightmost token with one of the tags
+ * - left:  the leftmost token with one of the tags
+ */
+public class HeadRules {
+
+    /**
+     * Rules by Collins, Michael. "Head-driven statistical models for natural language parsing." Computational linguistics 29.4 (2003)
+     * for the tags of the Penn Treebank
+     */
+    public static final HeadRules COLLINS = parse(Arrays.asList(
+            "last POS",
+            "right NN NNP NNPS NNS NX POS JJR",
+            "left NP",
+            "right $ ADJP PRN",
+            "right CD",
+            "right JJ JJS RB QP"));
+
+    private static final int LAST = 0;
+    private static final int RIGHT = 1;
+    private static final int LEFT = 2;
+
+    private final int[] directions;
+    private final List<Set<String>> tagsOfRules;
+
+
+    private HeadRules(int[] directions, List<Set<String>> tagsOfRules) {
+        this.directions = directions;
+        this.tagsOfRules = tagsOfRules;
+    }
+
+    /**
+     * Reads head rules in the format described above
+     *
+     * @param ruleSource source of the head rules
+     * @return the head rules
+     * @throws IOException if the source can not be read
+     * @throws IllegalArgumentException if a line has an unknown direction or no tags
+     */
+    public static HeadRules read(RuleSource ruleSource) throws IOException {
+        List<String> lines = new ArrayList<String>();
+        BufferedReader br = ruleSource.openReader();
+        try {
+            String currentLine;
+            while (null != (currentLine = br.readLine())) {
+                lines.add(currentLine);
+            }
+        } finally {
+            br.close();
+        }
+        return parse(lines);
+    }
+
+    private static HeadRules parse(List<String> lines) {
+        List<Integer> directions = new ArrayList<Integer>();
+        List<Set<String>> tagsOfRules = new ArrayList<Set<String>>();
+
+        for (String line : lines) {
+            String trimmedLine = line.trim();
+            if (trimmedLine.isEmpty() || trimmedLine.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmedLine.split("\\s+");
+            if (parts.length < 2) {
+                throw new IllegalArgumentException("Head rule without tags: " + line);
+            }
+            if (parts[0].equals("last")) {
+                directions.add(LAST);
+            } else if (parts[0].equals("right")) {
+                directions.add(RIGHT);
+            } else if (parts[0].equals("left")) {
+                directions.add(LEFT);
+            } else {
+                throw new IllegalArgumentException("Unknown direction of head rule: " + line);
+            }
+            tagsOfRules.add(new HashSet<String>(Arrays.asList(parts).subList(1, parts.length)));
+        }
+
+        int[] directionArray = new int[directions.size()];
+        for (int i = 0; i < directionArray.length; i++) {
+            directionArray[i] = directions.get(i);
+        }
+        return new HeadRules(directionArray, Collections.unmodifiableList(tagsOfRules));
+    }
+
+    /**
+     * Finds the head of a phrase
+     *
+     * @param tokens  the tokens of the phrase
+     * @param POSTags the POS tags of the tokens
+     * @return the token, which is the head
+     */
+    public String findHead(List<String> tokens, List<String> POSTags) {
+        int last = tokens.size() - 1;
+
+        for (int rule = 0; rule < directions.length; rule++) {
+            Set<String> tags = tagsOfRules.get(rule);
+            switch (directions[rule]) {
+                case LAST:
+                    if (tags.contains(POSTags.get(last))) {
+                        return tokens.get(last);
+                    }
+                    break;
+                case RIGHT:
+                    for (int i = last; i >= 0; i--) {
+                        if (tags.contains(POSTags.get(i))) {
+                            return tokens.get(i);
+                        }
+                    }
+                    break;
+                default:
+                    for (int i = 0; i <= last; i++) {
+                        if (tags.contains(POSTags.get(i))) {
+                            return tokens.get(i);
+                        }
+                    }
+            }
+        }
+        return tokens.get(last);
+    }
+}
@@ -0,0 +1,97 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+/**
+ * Describes everything needed to extract base noun phrases in one language: a tagger model,
+ * the positive and rejection rules, the head rules and the POS tags the tagger assigns.
+ * A language pack is only a description, the model and rules are loaded by the LanguagePackRegistry when the pack is first used
+ */
+public class LanguagePack {
+
+    private final String name;
+    private final String pathToStanfordModel;
+    private final RuleSource positiveRuleSource;
+    private final RuleSource rejectionRuleSource;
+    private final RuleSource headRuleSource;
+    private final String[] tagSet;
+
+
+    /**
+     * Language pack for a tagger, which assigns the tags of the Penn Treebank. The heads are found by the rules by Collins
+     *
+     * @param name                name the pack is selected by, e.g. "en"
+     * @param pathToStanfordModel path to a Stanford NLP POS Tagger trained model
+     * @param positiveRuleSource  where the positive rules are read from
+     * @param rejectionRuleSource where the rejection rules are read from
+     */
+    public LanguagePack(String name, String pathToStanfordModel, RuleSource positiveRuleSource, RuleSource rejectionRuleSource) {
+        this(name, pathToStanfordModel, positiveRuleSource, rejectionRuleSource, null, RulePrefilter.PENN_TREEBANK_TAGS);
+    }
+
+    /**
+     * @param name                name the pack is selected by, e.g. "de"
+     * @param pathToStanfordModel path to a Stanford NLP POS Tagger trained model
+     * @param positiveRuleSource  where the positive rules are read from
+     * @param rejectionRuleSource where the rejection rules are read from
+     * @param headRuleSource      where the head rules are read from, null for the rules by Collins
+     * @param tagSet              all POS tags the tagger assigns, e.g. the tags of the STTS for German
+     */
+    public LanguagePack(String name, String pathToStanfordModel, RuleSource positiveRuleSource, RuleSource rejectionRuleSource,
+                        RuleSource headRuleSource, String[] tagSet) {
+        this.name = name;
+        this.pathToStanfordModel = pathToStanfordModel;
+        this.positiveRuleSource = positiveRuleSource;
+        this.rejectionRuleSource = rejectionRuleSource;
+        this.headRuleSource = headRuleSource;
+        this.tagSet = tagSet.clone();
+    }
+
+    /**
+     * Loads the tagger model and compiles the rules
+     *
+     * @return a new extractor, which does not log its progress
+     * @throws java.io.UncheckedIOException if the rules can not be read
+     */
+    POSBasedBaseNounPhraseExtractor createExtractor() {
+        POSBasedBaseNounPhraseExtractor extractor = new POSBasedBaseNounPhraseExtractor(pathToStanfordModel,
+                positiveRuleSource, rejectionRuleSource, headRuleSource, tagSet);
+        extractor.setVerbose(false);
+        return extractor;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getPathToStanfordModel() {
+        return pathToStanfordModel;
+    }
+
+    public RuleSource getPositiveRuleSource() {
+        return positiveRuleSource;
+    }
+
+    public RuleSource getRejectionRuleSource() {
+        return rejectionRuleSource;
+    }
+
+    public RuleSource getHeadRuleSource() {
+        return headRuleSource;
+    }
+
+    public String[] getTagSet() {
+        return tagSet.clone();
+    }
+}
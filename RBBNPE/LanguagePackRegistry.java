@@ -0,0 +1,271 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Holds the language packs of one JVM, so texts in several languages can be processed side by side.
+ * Packs are registered once and loaded when they are first used. A loaded pack is one extractor, which is shared by all threads.
+ * The language pack is selected for every extraction by its name.
+ *
+ * Every use of a pack holds a lease on it. Packs are only evicted while no lease is held,
+ * either explicitly with evictUnused or when more packs are loaded than allowed by setMaxLoadedPacks
+ */
+public class LanguagePackRegistry {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+    private volatile int maxLoadedPacks = Integer.MAX_VALUE;
+
+
+    /**
+     * Registers a language pack. Nothing is loaded until the pack is used
+     *
+     * @param pack the language pack
+     * @throws IllegalArgumentException if a pack with the same name is already registered
+     */
+    public void register(LanguagePack pack) {
+        if (entries.putIfAbsent(pack.getName(), new Entry(pack)) != null) {
+            throw new IllegalArgumentException("A language pack with the name " + pack.getName() + " is already registered");
+        }
+    }
+
+    /**
+     * @return names of all registered language packs
+     */
+    public Set<String> getNames() {
+        return Collections.unmodifiableSet(entries.keySet());
+    }
+
+    /**
+     * @param name name of the language pack
+     * @return true if the tagger model and rules of the pack are loaded
+     */
+    public boolean isLoaded(String name) {
+        Entry entry = getEntry(name);
+        synchronized (entry) {
+            return entry.extractor != null;
+        }
+    }
+
+    /**
+     * Limits the number of loaded packs. If more packs are loaded, the packs unused for the longest time are evicted.
+     * Packs in use are never evicted, so the limit can be exceeded while they are in use
+     *
+     * @param maxLoadedPacks maximum number of loaded packs
+     */
+    public void setMaxLoadedPacks(int maxLoadedPacks) {
+        this.maxLoadedPacks = maxLoadedPacks;
+        evictLeastRecentlyUsed();
+    }
+
+    /**
+     * Leases a language pack and loads it, if it is not loaded yet. The lease has to be closed after use
+     *
+     * @param name name of the language pack
+     * @return lease on the loaded pack
+     * @throws IllegalArgumentException if no pack with the name is registered
+     * @throws java.io.UncheckedIOException if the rules of the pack can not be read
+     */
+    public Lease acquire(String name) {
+        Entry entry = getEntry(name);
+        POSBasedBaseNounPhraseExtractor extractor;
+        boolean loaded = false;
+        synchronized (entry) {
+            //Loading holds only the lock of this pack, so the other packs stay usable meanwhile
+            if (entry.extractor == null) {
+                entry.extractor = entry.pack.createExtractor();
+                loaded = true;
+            }
+            entry.references++;
+            extractor = entry.extractor;
+        }
+        if (loaded) {
+            evictLeastRecentlyUsed();
+        }
+        return new Lease(entry, extractor);
+    }
+
+    /**
+     * Extracts all base noun phrases from a text with the given language pack
+     *
+     * @param name name of the language pack
+     * @param text the input text
+     * @return the tagged sentences and the extracted base noun phrases
+     */
+    public ExtractionResult extractFromText(String name, String text) {
+        Lease lease = acquire(name);
+        try {
+            return lease.getExtractor().extractFromText(text);
+        } finally {
+            lease.close();
+        }
+    }
+
+    /**
+     * Extracts all base noun phrases from data in the CoNLL data format with the given language pack
+     *
+     * @param name name of the language pack
+     * @param br   reader on the CoNLL data. It is not closed
+     * @return the tagged sentences and the extracted base noun phrases
+     * @throws IOException
+     */
+    public ExtractionResult extractFromCoNLL(String name, BufferedReader br) throws IOException {
+        Lease lease = acquire(name);
+        try {
+            return lease.getExtractor().extractFromCoNLL(br);
+        } finally {
+            lease.close();
+        }
+    }
+
+    /**
+     * Extracts all base noun phrases from tokenized text with the given language pack
+     *
+     * @param name          name of the language pack
+     * @param tokenizedText the sentences and tokens
+     * @return the tagged sentences and the extracted base noun phrases
+     */
+    public ExtractionResult extractFromTokenizedText(String name, TokenizedText tokenizedText) {
+        Lease lease = acquire(name);
+        try {
+            return lease.getExtractor().extractFromTokenizedText(tokenizedText);
+        } finally {
+            lease.close();
+        }
+    }
+
+    /**
+     * Evicts all packs, which are not in use and were last used before the given time
+     *
+     * @param idleMillis minimum time since the last use in milliseconds
+     * @return number of evicted packs
+     */
+    public int evictUnused(long idleMillis) {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (entry.extractor != null && entry.references == 0 && now - entry.lastReleasedNanos >= idleMillis * 1000000L) {
+                    entry.evict();
+                    evicted++;
+                }
+            }
+        }
+        return evicted;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        while (true) {
+            int loadedPacks = 0;
+            Entry leastRecentlyUsed = null;
+            long leastRecentlyReleasedNanos = 0;
+            for (Entry entry : entries.values()) {
+                synchronized (entry) {
+                    if (entry.extractor == null) {
+                        continue;
+                    }
+                    loadedPacks++;
+                    if (entry.references == 0 && (leastRecentlyUsed == null || entry.lastReleasedNanos - leastRecentlyReleasedNanos < 0)) {
+                        leastRecentlyUsed = entry;
+                        leastRecentlyReleasedNanos = entry.lastReleasedNanos;
+                    }
+                }
+            }
+            if (loadedPacks <= maxLoadedPacks || leastRecentlyUsed == null) {
+                return;
+            }
+            synchronized (leastRecentlyUsed) {
+                //The pack may have been leased again meanwhile
+                if (leastRecentlyUsed.extractor != null && leastRecentlyUsed.references == 0) {
+                    leastRecentlyUsed.evict();
+                }
+            }
+        }
+    }
+
+    private Entry getEntry(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            throw new IllegalArgumentException("Unknown language pack: " + name);
+        }
+        return entry;
+    }
+
+    /**
+     * A registered pack, its extractor if it is loaded and the number of leases on it
+     */
+    private static class Entry {
+        private final LanguagePack pack;
+        private POSBasedBaseNounPhraseExtractor extractor;
+        private int references = 0;
+        private long lastReleasedNanos = System.nanoTime();
+
+        Entry(LanguagePack pack) {
+            this.pack = pack;
+        }
+
+        void evict() {
+            extractor.close();
+            extractor = null;
+        }
+    }
+
+    /**
+     * A lease on a loaded language pack. The pack is not evicted until the lease is closed
+     */
+    public class Lease implements Closeable {
+        private final Entry entry;
+        private final POSBasedBaseNounPhraseExtractor extractor;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+
+        private Lease(Entry entry, POSBasedBaseNounPhraseExtractor extractor) {
+            this.entry = entry;
+            this.extractor = extractor;
+        }
+
+        /**
+         * @return the extractor of the pack, which can be used by several threads at once
+         */
+        public POSBasedBaseNounPhraseExtractor getExtractor() {
+            if (closed.get()) {
+                throw new IllegalStateException("The lease on the language pack " + entry.pack.getName() + " is closed");
+            }
+            return extractor;
+        }
+
+        public LanguagePack getPack() {
+            return entry.pack;
+        }
+
+        /**
+         * Releases the pack and evicts packs, if more packs are loaded than allowed. Closing a lease twice has no effect
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                synchronized (entry) {
+                    entry.references--;
+                    entry.lastReleasedNanos = System.nanoTime();
+                }
+                evictLeastRecentlyUsed();
+            }
+        }
+    }
+}
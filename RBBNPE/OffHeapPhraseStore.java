@@ -0,0 +1,597 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Stores extracted base noun phrases outside of the Java heap, so corpora with billions of tokens
+ * do not run into the limits of the garbage collector.
+ *
+ * Each phrase is stored as a fixed size record with its document, sentence index, first token, offsets and the ids of its phrase String and head.
+ * The Strings are interned: each different String is kept only once on the heap and the records refer to it by id.
+ * Documents are identified by their names, e.g. file names, which are interned separately.
+ * The records are written to segments, which are either direct ByteBuffers or memory-mapped segment files.
+ *
+ * A store with segment files also appends its Strings and document names to files in the same directory.
+ * flush and close write the metadata, so the store can be opened again with the same directory and more phrases can be appended.
+ * Phrases stored after the last flush are lost, if the process ends without closing the store.
+ *
+ * The records can be iterated with a Cursor and phrases and heads can be counted without creating BaseNounPhrase objects
+ */
+public class OffHeapPhraseStore implements BaseNounPhraseSink, Closeable {
+
+    /**
+     * Document id of phrases, which were stored without a document
+     */
+    public static final int NO_DOCUMENT = -1;
+
+    private static final int SENTENCE_INDEX = 0;
+    private static final int START_TOKEN = 4;
+    private static final int START_OFFSET = 8;
+    private static final int END_OFFSET = 12;
+    private static final int PHRASE_ID = 16;
+    private static final int HEAD_ID = 20;
+    private static final int DOCUMENT_ID = 24;
+    private static final int RECORD_SIZE = 28;
+
+    /**
+     * Number of records in one segment, 64 MB per segment
+     */
+    private static final int RECORDS_PER_SEGMENT = (64 * 1024 * 1024) / RECORD_SIZE;
+
+    private static final String METADATA_FILE = "store.meta";
+    private static final String STRINGS_FILE = "strings.table";
+    private static final String DOCUMENTS_FILE = "documents.table";
+    private static final int METADATA_MAGIC = 0x524E5053;
+    private static final int METADATA_VERSION = 1;
+
+    private final Path segmentDirectory;
+    private final List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+    private final List<FileChannel> segmentChannels = new ArrayList<FileChannel>();
+
+    private final StringTable strings;
+    private final StringTable documents;
+
+    private long size = 0;
+    private long forcedSize = 0;
+    private boolean closed = false;
+
+
+    /**
+     * Stores the records in direct ByteBuffers
+     */
+    public OffHeapPhraseStore() {
+        this.segmentDirectory = null;
+        this.strings = new StringTable(null);
+        this.documents = new StringTable(null);
+    }
+
+    /**
+     * Stores the records in memory-mapped segment files in the given directory.
+     * If the directory already contains a store, it is opened and new phrases are appended to it
+     *
+     * @param segmentDirectory directory for the segment files, it is created if necessary
+     * @throws IOException if the directory contains segment files, which can not be opened as a store
+     */
+    public OffHeapPhraseStore(Path segmentDirectory) throws IOException {
+        this.segmentDirectory = segmentDirectory;
+        this.strings = new StringTable(segmentDirectory.resolve(STRINGS_FILE));
+        this.documents = new StringTable(segmentDirectory.resolve(DOCUMENTS_FILE));
+        Files.createDirectories(segmentDirectory);
+
+        Path metadataFile = segmentDirectory.resolve(METADATA_FILE);
+        if (Files.exists(metadataFile)) {
+            open(metadataFile);
+        } else if (Files.exists(segmentDirectory.resolve(segmentFileName(0)))) {
+            throw new IOException(segmentDirectory + " contains segment files, but no " + METADATA_FILE + ". The store was never flushed and can not be opened");
+        } else {
+            strings.open(0, 0);
+            documents.open(0, 0);
+            writeMetadata();
+        }
+    }
+
+    private void open(Path metadataFile) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(metadataFile)));
+        try {
+            if (in.readInt() != METADATA_MAGIC) {
+                throw new IOException(metadataFile + " is not the metadata of a phrase store");
+            }
+            int version = in.readInt();
+            if (version != METADATA_VERSION || in.readInt() != RECORD_SIZE || in.readInt() != RECORDS_PER_SEGMENT) {
+                throw new IOException("Unsupported version of phrase store in " + segmentDirectory + ": " + version);
+            }
+            size = in.readLong();
+            forcedSize = size;
+            strings.open(in.readInt(), in.readLong());
+            documents.open(in.readInt(), in.readLong());
+        } finally {
+            in.close();
+        }
+
+        long numberOfSegments = (size + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT;
+        for (int i = 0; i < numberOfSegments; i++) {
+            if (!Files.exists(segmentDirectory.resolve(segmentFileName(i)))) {
+                throw new IOException("Segment file " + segmentFileName(i) + " of the phrase store in " + segmentDirectory + " is missing");
+            }
+            mapSegment(i);
+        }
+    }
+
+    private void writeMetadata() throws IOException {
+        //Written to a temporary file first, so a crash never leaves metadata behind, which does not match the tables
+        Path metadataFile = segmentDirectory.resolve(METADATA_FILE);
+        Path temporaryFile = segmentDirectory.resolve(METADATA_FILE + ".tmp");
+        FileOutputStream fileOut = new FileOutputStream(temporaryFile.toFile());
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        try {
+            out.writeInt(METADATA_MAGIC);
+            out.writeInt(METADATA_VERSION);
+            out.writeInt(RECORD_SIZE);
+            out.writeInt(RECORDS_PER_SEGMENT);
+            out.writeLong(size);
+            out.writeInt(strings.size());
+            out.writeLong(strings.getFileLength());
+            out.writeInt(documents.size());
+            out.writeLong(documents.getFileLength());
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            out.close();
+        }
+        Files.move(temporaryFile, metadataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String segmentFileName(int index) {
+        return "phrases-" + index + ".segment";
+    }
+
+    /**
+     * Appends a phrase to the store without a document
+     *
+     * @param baseNP the extracted phrase
+     */
+    @Override
+    public synchronized void accept(BaseNounPhrase baseNP) {
+        append(baseNP, NO_DOCUMENT);
+    }
+
+    /**
+     * Appends all phrases of a document at once, e.g. of one file.
+     * The phrases of a document are never only partly flushed
+     *
+     * @param documentName name of the document, e.g. the file name
+     * @param baseNPs      the phrases extracted from the document
+     */
+    public synchronized void add(String documentName, List<BaseNounPhrase> baseNPs) {
+        int documentId = documents.intern(documentName);
+        for (BaseNounPhrase baseNP : baseNPs) {
+            append(baseNP, documentId);
+        }
+    }
+
+    private void append(BaseNounPhrase baseNP, int documentId) {
+        if (closed) {
+            throw new IllegalStateException("The phrase store is closed");
+        }
+        int indexInSegment = (int) (size % RECORDS_PER_SEGMENT);
+        if (indexInSegment == 0) {
+            addSegment();
+        }
+        ByteBuffer segment = segments.get(segments.size() - 1);
+        int position = indexInSegment * RECORD_SIZE;
+
+        segment.putInt(position + SENTENCE_INDEX, baseNP.getSentenceIndex());
+        segment.putInt(position + START_TOKEN, baseNP.getStartToken());
+        segment.putInt(position + START_OFFSET, baseNP.getStartOffset());
+        segment.putInt(position + END_OFFSET, baseNP.getEndOffset());
+        segment.putInt(position + PHRASE_ID, strings.intern(baseNP.getPhraseString()));
+        segment.putInt(position + HEAD_ID, strings.intern(baseNP.getHead()));
+        segment.putInt(position + DOCUMENT_ID, documentId);
+        size++;
+    }
+
+    private void addSegment() {
+        if (segmentDirectory == null) {
+            segments.add(ByteBuffer.allocateDirect(RECORDS_PER_SEGMENT * RECORD_SIZE));
+            return;
+        }
+        try {
+            mapSegment(segments.size());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create segment file in " + segmentDirectory, e);
+        }
+    }
+
+    private void mapSegment(int index) throws IOException {
+        Path segmentFile = segmentDirectory.resolve(segmentFileName(index));
+        RandomAccessFile file = new RandomAccessFile(segmentFile.toFile(), "rw");
+        FileChannel channel = file.getChannel();
+        MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, RECORDS_PER_SEGMENT * RECORD_SIZE);
+        segmentChannels.add(channel);
+        segments.add(segment);
+    }
+
+    /**
+     * Returns the number of stored phrases
+     *
+     * @return number of records
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns the String with the given id, e.g. a phrase String or a head
+     *
+     * @param id id of a phrase String or head
+     * @return the String
+     */
+    public synchronized String getString(int id) {
+        return strings.get(id);
+    }
+
+    /**
+     * Returns the number of different Strings, phrase Strings and heads together
+     *
+     * @return number of interned Strings
+     */
+    public synchronized int getNumberOfStrings() {
+        return strings.size();
+    }
+
+    /**
+     * Returns whether phrases of a document were added
+     *
+     * @param documentName name of the document
+     * @return true, if add was called with the name
+     */
+    public synchronized boolean containsDocument(String documentName) {
+        return documents.getId(documentName) != null;
+    }
+
+    /**
+     * Returns the name of the document with the given id
+     *
+     * @param documentId id of a document as returned by Cursor.getDocumentId
+     * @return the name of the document
+     */
+    public synchronized String getDocumentName(int documentId) {
+        return documents.get(documentId);
+    }
+
+    /**
+     * Returns the number of different documents
+     *
+     * @return number of document names
+     */
+    public synchronized int getNumberOfDocuments() {
+        return documents.size();
+    }
+
+    /**
+     * Returns a cursor over the phrases stored so far, in the order they were added
+     *
+     * @return Cursor positioned before the first phrase
+     */
+    public synchronized Cursor cursor() {
+        return new Cursor(size);
+    }
+
+    /**
+     * Counts how often each phrase String occurs
+     *
+     * @return counts indexed by the id of the phrase String
+     */
+    public long[] countPhrases() {
+        return count(PHRASE_ID);
+    }
+
+    /**
+     * Counts how often each head occurs
+     *
+     * @return counts indexed by the id of the head
+     */
+    public long[] countHeads() {
+        return count(HEAD_ID);
+    }
+
+    private long[] count(int field) {
+        Cursor cursor = cursor();
+        long[] counts = new long[getNumberOfStrings()];
+        while (cursor.next()) {
+            counts[cursor.getInt(field)]++;
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the most frequent phrase Strings
+     *
+     * @param k number of phrases to return
+     * @return phrase Strings with their counts, most frequent first
+     */
+    public List<Map.Entry<String, Long>> getTopPhrases(int k) {
+        return getTop(countPhrases(), k);
+    }
+
+    /**
+     * Returns the most frequent heads
+     *
+     * @param k number of heads to return
+     * @return heads with their counts, most frequent first
+     */
+    public List<Map.Entry<String, Long>> getTopHeads(int k) {
+        return getTop(countHeads(), k);
+    }
+
+    private List<Map.Entry<String, Long>> getTop(final long[] counts, int k) {
+        //Keeps the k largest counts in a heap with the smallest of them on top
+        PriorityQueue<Integer> top = new PriorityQueue<Integer>(Math.max(1, k), new Comparator<Integer>() {
+            public int compare(Integer id1, Integer id2) {
+                return Long.compare(counts[id1], counts[id2]);
+            }
+        });
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] == 0) {
+                continue;
+            }
+            if (top.size() < k) {
+                top.add(id);
+            } else if (k > 0 && counts[id] > counts[top.peek()]) {
+                top.poll();
+                top.add(id);
+            }
+        }
+
+        LinkedList<Map.Entry<String, Long>> result = new LinkedList<Map.Entry<String, Long>>();
+        while (!top.isEmpty()) {
+            int id = top.poll();
+            result.addFirst(new AbstractMap.SimpleImmutableEntry<String, Long>(getString(id), counts[id]));
+        }
+        return new ArrayList<Map.Entry<String, Long>>(result);
+    }
+
+    /**
+     * Writes the Strings, document names and metadata, so the store can be opened again with all phrases stored so far.
+     * The segments and tables are forced to disk before the metadata, which refers to them, so the store can also be opened after a crash.
+     * Does nothing for stores with direct ByteBuffers
+     *
+     * @throws IOException
+     */
+    public synchronized void flush() throws IOException {
+        if (segmentDirectory == null || closed) {
+            return;
+        }
+        //Only the segments with records added since the last flush can be dirty
+        for (int i = (int) (forcedSize / RECORDS_PER_SEGMENT); i < segments.size(); i++) {
+            ((MappedByteBuffer) segments.get(i)).force();
+        }
+        forcedSize = size;
+        strings.flush();
+        documents.flush();
+        writeMetadata();
+    }
+
+    /**
+     * Flushes the store and releases the segments. Segment files stay on disk
+     *
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            segments.clear();
+            for (FileChannel channel : segmentChannels) {
+                channel.close();
+            }
+            segmentChannels.clear();
+            strings.close();
+            documents.close();
+            size = 0;
+        }
+    }
+
+    /**
+     * Iterates over the stored phrases without creating objects for them.
+     * A cursor only sees the phrases, which were stored when it was created
+     */
+    public class Cursor {
+        private final long end;
+        private long index = -1;
+        private ByteBuffer segment;
+        private int position;
+
+        private Cursor(long end) {
+            this.end = end;
+        }
+
+        /**
+         * Moves to the next phrase
+         *
+         * @return false, if there are no more phrases
+         */
+        public boolean next() {
+            if (index + 1 >= end) {
+                return false;
+            }
+            index++;
+            int indexInSegment = (int) (index % RECORDS_PER_SEGMENT);
+            if (indexInSegment == 0 || segment == null) {
+                synchronized (OffHeapPhraseStore.this) {
+                    segment = segments.get((int) (index / RECORDS_PER_SEGMENT));
+                }
+            }
+            position = indexInSegment * RECORD_SIZE;
+            return true;
+        }
+
+        private int getInt(int field) {
+            return segment.getInt(position + field);
+        }
+
+        public int getSentenceIndex() {
+            return getInt(SENTENCE_INDEX);
+        }
+
+        public int getStartToken() {
+            return getInt(START_TOKEN);
+        }
+
+        public int getStartOffset() {
+            return getInt(START_OFFSET);
+        }
+
+        public int getEndOffset() {
+            return getInt(END_OFFSET);
+        }
+
+        public int getPhraseId() {
+            return getInt(PHRASE_ID);
+        }
+
+        public int getHeadId() {
+            return getInt(HEAD_ID);
+        }
+
+        /**
+         * @return id of the document or NO_DOCUMENT
+         */
+        public int getDocumentId() {
+            return getInt(DOCUMENT_ID);
+        }
+    }
+
+    /**
+     * Interned Strings, which are appended to a file, if the file is not null.
+     * Each String is written as the number of its UTF-8 bytes followed by the bytes
+     */
+    private static class StringTable {
+        private final Path file;
+        private final HashMap<String, Integer> idOfString = new HashMap<String, Integer>();
+        private final ArrayList<String> strings = new ArrayList<String>();
+        private FileOutputStream fileOut;
+        private DataOutputStream out;
+        private long fileLength = 0;
+
+        StringTable(Path file) {
+            this.file = file;
+        }
+
+        /**
+         * Reads the Strings, which were flushed before, and cuts off the rest of the file
+         */
+        void open(int numberOfStrings, long length) throws IOException {
+            if (numberOfStrings > 0) {
+                DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+                try {
+                    for (int i = 0; i < numberOfStrings; i++) {
+                        byte[] bytes = new byte[in.readInt()];
+                        in.readFully(bytes);
+                        add(new String(bytes, StandardCharsets.UTF_8));
+                    }
+                } catch (EOFException e) {
+                    throw new IOException(file + " is shorter than recorded in the metadata", e);
+                } finally {
+                    in.close();
+                }
+            }
+            RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "rw");
+            try {
+                randomAccessFile.setLength(length);
+            } finally {
+                randomAccessFile.close();
+            }
+            fileLength = length;
+            fileOut = new FileOutputStream(file.toFile(), true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut));
+        }
+
+        private int add(String string) {
+            int id = strings.size();
+            strings.add(string);
+            idOfString.put(string, id);
+            return id;
+        }
+
+        Integer getId(String string) {
+            return idOfString.get(string);
+        }
+
+        int intern(String string) {
+            Integer id = idOfString.get(string);
+            if (id != null) {
+                return id;
+            }
+            if (out != null) {
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                try {
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not write to " + file, e);
+                }
+                fileLength += 4 + bytes.length;
+            }
+            return add(string);
+        }
+
+        String get(int id) {
+            return strings.get(id);
+        }
+
+        int size() {
+            return strings.size();
+        }
+
+        long getFileLength() {
+            return fileLength;
+        }
+
+        /**
+         * Writes the buffered Strings and forces them to disk
+         */
+        void flush() throws IOException {
+            if (out != null) {
+                out.flush();
+                fileOut.getFD().sync();
+            }
+        }
+
+        void close() throws IOException {
+            idOfString.clear();
+            strings.clear();
+            if (out != null) {
+                out.close();
+                out = null;
+                fileOut = null;
+            }
+        }
+    }
+}
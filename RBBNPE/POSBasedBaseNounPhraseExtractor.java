@@ -21,9 +21,8 @@ import edu.stanford.nlp.tagger.maxent.MaxentTagger;
 
 import java.io.*;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -33,51 +32,152 @@ import java.util.regex.Pattern;
  */
 public class POSBasedBaseNounPhraseExtractor {
 
+    private MaxentTagger POSTagger;
+    private ExtractionResult result;
+
+    private final ExtractionMetrics metrics = new ExtractionMetrics();
+    private final ExecutorService ruleExecutor;
+    private volatile boolean verbose = true;
+    private volatile boolean prefilterEnabled = true;
+
+    private volatile RuleSource positiveRuleSource;
+    private volatile RuleSource rejectionRuleSource;
+    private final RuleSource headRuleSource;
+    private final String[] tagSet;
+    private final AtomicReference<CompiledRuleSet> ruleSet = new AtomicReference<CompiledRuleSet>();
+    private final List<RuleFileWatcher> ruleFileWatchers = new CopyOnWriteArrayList<RuleFileWatcher>();
+
+
     /**
-     * This class represents the rejection rules conveniently
+     * Uses the rules files "positiveRules.txt" and "rejectionRules.txt" in the working directory
+     *
+     * @param pathToStanfordModel path to a Stanford NLP POS Tagger trained model
      */
-    private class RejectionRule {
-        private String key;
-        private String operation;
-        ArrayList<String> rules;
+    public POSBasedBaseNounPhraseExtractor(String pathToStanfordModel) {
+        this(pathToStanfordModel, RuleSource.fromFile("positiveRules.txt"), RuleSource.fromFile("rejectionRules.txt"));
+    }
 
-        public RejectionRule(String key, String operation) {
-            this.key = key;
-            this.operation = operation;
-            this.rules = new ArrayList<String>();
-        }
+    /**
+     * @param pathToStanfordModel path to a Stanford NLP POS Tagger trained model
+     * @param positiveRuleSource  where the positive rules are read from
+     * @param rejectionRuleSource where the rejection rules are read from
+     */
+    public POSBasedBaseNounPhraseExtractor(String pathToStanfordModel, RuleSource positiveRuleSource, RuleSource rejectionRuleSource) {
+        this(pathToStanfordModel, positiveRuleSource, rejectionRuleSource, null, RulePrefilter.PENN_TREEBANK_TAGS);
+    }
 
-        public void addRule(String newRule) {
-            rules.add(newRule);
+    /**
+     * Creates an extractor for a tagger model with another tag set than the one of the Penn Treebank, e.g. for another language
+     *
+     * @param pathToStanfordModel path to a Stanford NLP POS Tagger trained model
+     * @param positiveRuleSource  where the positive rules are read from
+     * @param rejectionRuleSource where the rejection rules are read from
+     * @param headRuleSource      where the head rules are read from, null for the rules by Collins
+     * @param tagSet              all POS tags the tagger assigns
+     * @throws UncheckedIOException if one of the rule sources can not be read
+     */
+    public POSBasedBaseNounPhraseExtractor(String pathToStanfordModel, RuleSource positiveRuleSource, RuleSource rejectionRuleSource,
+                                           RuleSource headRuleSource, String[] tagSet) {
+        this.positiveRuleSource = positiveRuleSource;
+        this.rejectionRuleSource = rejectionRuleSource;
+        this.headRuleSource = headRuleSource;
+        this.tagSet = tagSet;
+
+        //The rules are compiled before the model is loaded, so a wrong rules path fails immediately
+        try {
+            reloadRules();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the rules", e);
         }
 
-        public ArrayList<String> getRules() {
-            return rules;
-        }
+        Properties props = new Properties();
+        props.put("tokenize.options", "untokenizable=allKeep,normalizeParentheses=false"); // or noneKeep
+        props.put("encoding", "utf-8");
+        props.put("strictTreebank3", "true");
 
-        public String getKey() {
-            return key;
-        }
+        this.POSTagger = new MaxentTagger(pathToStanfordModel, props);
 
-        public String getOperation() {
-            return operation;
+        //One pool for all extractions, its daemon threads do not keep the JVM running
+        this.ruleExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "RBBNPE positive rules");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Reads and compiles the rules from the current rule sources and swaps them in atomically.
+     * Extractions which already started finish with the rules they started with
+     *
+     * @return the newly active rules
+     * @throws IOException if one of the rule sources can not be read. The previous rules stay active
+     */
+    public synchronized CompiledRuleSet reloadRules() throws IOException {
+        CompiledRuleSet newRuleSet = CompiledRuleSet.compile(positiveRuleSource, rejectionRuleSource, headRuleSource, tagSet);
+        ruleSet.set(newRuleSet);
+        return newRuleSet;
+    }
+
+    /**
+     * Changes where the rules are read from and swaps in the compiled rules atomically
+     *
+     * @param positiveRuleSource  where the positive rules are read from
+     * @param rejectionRuleSource where the rejection rules are read from
+     * @return the newly active rules
+     * @throws IOException if one of the rule sources can not be read. The previous rules and sources stay active
+     */
+    public synchronized CompiledRuleSet setRuleSources(RuleSource positiveRuleSource, RuleSource rejectionRuleSource) throws IOException {
+        CompiledRuleSet newRuleSet = CompiledRuleSet.compile(positiveRuleSource, rejectionRuleSource, headRuleSource, tagSet);
+        this.positiveRuleSource = positiveRuleSource;
+        this.rejectionRuleSource = rejectionRuleSource;
+        ruleSet.set(newRuleSet);
+        for (RuleFileWatcher ruleFileWatcher : ruleFileWatchers) {
+            ruleFileWatcher.ruleSourcesChanged();
         }
+        return newRuleSet;
     }
 
+    /**
+     * Starts a background thread, which recompiles the rules whenever one of the rules files changes.
+     * Only rule sources backed by a file are watched. After setRuleSources the files of the new sources are watched
+     *
+     * @return the watcher, which has to be closed to stop watching
+     * @throws IOException
+     */
+    public synchronized RuleFileWatcher watchRuleFiles() throws IOException {
+        RuleFileWatcher ruleFileWatcher = new RuleFileWatcher(this);
+        ruleFileWatchers.add(ruleFileWatcher);
+        return ruleFileWatcher;
+    }
 
-    private MaxentTagger POSTagger;
-    List<List<TaggedWord>> taggedSentences;
-    HashMap<BaseNounPhrase, List<TaggedWord>> dictionaryWithTaggedSentenceForBaseNP;
-    ArrayList<BaseNounPhrase> extractedBaseNounPhrases;
+    void removeRuleFileWatcher(RuleFileWatcher ruleFileWatcher) {
+        ruleFileWatchers.remove(ruleFileWatcher);
+    }
 
+    /**
+     * Returns the currently active rules. An extraction uses the same rules from start to finish
+     *
+     * @return the active rules
+     */
+    public CompiledRuleSet getRuleSet() {
+        return ruleSet.get();
+    }
 
-    public POSBasedBaseNounPhraseExtractor(String pathToStanfordModel) {
-        Properties props = new Properties();
-        props.put("tokenize.options", "untokenizable=allKeep,normalizeParentheses=false"); // or noneKeep
-        props.put("encoding", "utf-8");
-        props.put("strictTreebank3", "true");
+    public RuleSource getPositiveRuleSource() {
+        return positiveRuleSource;
+    }
 
-        this.POSTagger = new MaxentTagger(pathToStanfordModel, props);
+    public RuleSource getRejectionRuleSource() {
+        return rejectionRuleSource;
+    }
+
+    /**
+     * @return where the head rules are read from, null for the rules by Collins
+     */
+    public RuleSource getHeadRuleSource() {
+        return headRuleSource;
     }
 
 
@@ -103,183 +203,238 @@ public class POSBasedBaseNounPhraseExtractor {
 
     /**
      * Apply positive rules using REGEX
+     * The sentences are processed in parallel, each into its own list. These lists are joined in the order of the sentences,
+     * so the phrases are ordered by sentence and by their first token without sorting them
      */
-    private ArrayList<BaseNounPhrase> applyPositiveRules(List<List<TaggedWord>> taggedSentences) {
-
-        try {
-            ArrayList<BaseNounPhrase> extractedNounPhrases = new ArrayList<BaseNounPhrase>();
+    private ArrayList<BaseNounPhrase> applyPositiveRules(List<List<TaggedWord>> taggedSentences, final CompiledRuleSet rules) {
 
-            String rulesFilePath = "positiveRules.txt";
-            String rulesRegEx = getRegExString(rulesFilePath);
+        ArrayList<BaseNounPhrase> extractedNounPhrases = new ArrayList<BaseNounPhrase>();
 
+        final RulePrefilter prefilter = rules.getPrefilter();
+        final boolean usePrefilter = prefilterEnabled;
 
-            ExecutorService es = Executors.newFixedThreadPool(8); //newCachedThreadPool
-            for (List<TaggedWord> taggedSentence : taggedSentences) {
+        List<Future<ArrayList<BaseNounPhrase>>> phrasesOfSentences = new ArrayList<Future<ArrayList<BaseNounPhrase>>>(taggedSentences.size());
+        for (int indexOfSentence = 0; indexOfSentence < taggedSentences.size(); indexOfSentence++) {
 
+            final List<TaggedWord> taggedSentence = taggedSentences.get(indexOfSentence);
+            final int sentenceIndex = indexOfSentence;
 
-                Thread thread = new Thread() {
-                    public void run() {
+            phrasesOfSentences.add(ruleExecutor.submit(new Callable<ArrayList<BaseNounPhrase>>() {
+                public ArrayList<BaseNounPhrase> call() {
 
+                    ArrayList<BaseNounPhrase> phrasesOfSentence = new ArrayList<BaseNounPhrase>();
 
-                        TaggedWord firstWord = taggedSentence.get(0);
-                        int startOfTaggedSentence = firstWord.beginPosition() - 1;
+                    if (taggedSentence.isEmpty()) {
+                        return phrasesOfSentence; //Empty lines following each other in CoNLL data create empty sentences
+                    }
 
-                        int initialStartOffset = startOfTaggedSentence;
+                    //Rules, which need tags the sentence does not contain, are not checked at all
+                    Pattern baseNPPositiveRulesPattern = rules.getPositiveRulesPattern();
+                    if (usePrefilter) {
+                        long tagMask = prefilter.getTagMask(taggedSentence);
+                        baseNPPositiveRulesPattern = rules.getPositiveRulesPattern(tagMask);
+                        if (baseNPPositiveRulesPattern == null) {
+                            return phrasesOfSentence;
+                        }
+                    }
 
-                        Pattern baseNPPositiveRulesPattern = Pattern.compile(rulesRegEx);
-                        Matcher baseNPMatcher = baseNPPositiveRulesPattern.matcher("");
+                    TaggedWord firstWord = taggedSentence.get(0);
+                    int startOfTaggedSentence = firstWord.beginPosition() - 1;
 
-                        Pattern POSTagPattern = Pattern.compile("(?<!(?:/|\\)))/([A-Z,$,#,€]{1,4})");
-                        Matcher POSTagMatcher = POSTagPattern.matcher("");
+                    int initialStartOffset = startOfTaggedSentence;
 
-                        String sentence = Sentence.listToString(taggedSentence, false);
-                        baseNPMatcher.reset(sentence);
+                    Matcher baseNPMatcher = baseNPPositiveRulesPattern.matcher("");
 
+                    String sentence = Sentence.listToString(taggedSentence, false);
+                    baseNPMatcher.reset(sentence);
 
-                        while (baseNPMatcher.find()) {
 
-                            String baseNPString = baseNPMatcher.group(0);
+                    while (baseNPMatcher.find()) {
 
-                            String POSTag = "";
-                            POSTagMatcher.reset(baseNPString); //So Matcher does not have to be reinitialized every time
+                        String baseNPString = baseNPMatcher.group(0);
 
-                            while (POSTagMatcher.find()) {
-                                POSTag = POSTagMatcher.group(1);  //POS Tag of last token
-                            }
+                        String POSTag = getLastPOSTag(baseNPString);
 
-                            String cleanBaseNPString = baseNPString.replaceAll("(?<!(?:\\/|\\\\))\\/([A-Z,$,#,€]{1,4})", "").trim();
+                        String cleanBaseNPString = removePOSTags(baseNPString);
 
-                            if (!cleanBaseNPString.equals("")) {
+                        if (!cleanBaseNPString.equals("")) {
 
 
-                                BaseNounPhrase baseNP = createBaseNounPhrase(cleanBaseNPString, baseNPString, taggedSentence, POSTag, initialStartOffset);
-                                //System.out.println("Tagged Sentence: " + taggedSentence + " with initialOffset: " + initialStartOffset + " produced: " + baseNP);
-                                initialStartOffset = baseNP.getEndOffset();
-                                dictionaryWithTaggedSentenceForBaseNP.put(baseNP, taggedSentence);
-                                synchronized (extractedNounPhrases) {
-                                    Collections.synchronizedCollection(extractedNounPhrases).add(baseNP);
-                                }
-                            }
+                            BaseNounPhrase baseNP = createBaseNounPhrase(cleanBaseNPString, baseNPString, taggedSentence, sentenceIndex, POSTag, initialStartOffset, rules.getHeadRules());
+                            //System.out.println("Tagged Sentence: " + taggedSentence + " with initialOffset: " + initialStartOffset + " produced: " + baseNP);
+                            initialStartOffset = baseNP.getEndOffset();
+                            phrasesOfSentence.add(baseNP);
                         }
-
                     }
-                };
-                //thread.start();
-                es.execute(thread);
+                    return phrasesOfSentence;
+                }
+            }));
+        }
 
+        //A partial result must not look like a complete one, so a failed or interrupted sentence fails the whole extraction
+        for (int indexOfSentence = 0; indexOfSentence < phrasesOfSentences.size(); indexOfSentence++) {
+            try {
+                extractedNounPhrases.addAll(phrasesOfSentences.get(indexOfSentence).get());
+            } catch (ExecutionException e) {
+                cancel(phrasesOfSentences);
+                throw new RuntimeException("Positive rules failed on sentence " + indexOfSentence, e.getCause());
+            } catch (InterruptedException e) {
+                cancel(phrasesOfSentences);
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while applying the positive rules", e);
             }
-            es.shutdown();
-            boolean finshed = es.awaitTermination(1, TimeUnit.MINUTES);
+        }
 
-            return extractedNounPhrases;
+        return extractedNounPhrases;
+    }
 
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
 
-        return null;
+    private static void cancel(List<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(false);
+        }
     }
 
 
     /**
-     * Apply rejection rules
+     * Removes the POS tags from tokens with tags like "the/DT dog/NN".
+     * Each token is split at its last slash, so the tags of every tag set are removed and slashes inside words are kept
+     *
+     * @param taggedString tokens with tags separated by spaces
+     * @return the tokens separated by single spaces
      */
-    private ArrayList<BaseNounPhrase> applyRejectionRules(ArrayList<BaseNounPhrase> baseNounPhrases) {
+    static String removePOSTags(String taggedString) {
+        StringBuilder words = new StringBuilder(taggedString.length());
+        for (String token : taggedString.trim().split("\\s+")) {
+            if (token.isEmpty()) {
+                continue;
+            }
+            int slash = token.lastIndexOf('/');
+            if (words.length() > 0) {
+                words.append(' ');
+            }
+            words.append(slash > 0 ? token.substring(0, slash) : token);
+        }
+        return words.toString();
+    }
 
-        try {
+    /**
+     * Returns the POS tag of the last token of tokens with tags like "the/DT dog/NN"
+     *
+     * @param taggedString tokens with tags separated by spaces
+     * @return the tag after the last slash or "", if the last token has no tag
+     */
+    static String getLastPOSTag(String taggedString) {
+        String trimmedString = taggedString.trim();
+        int slash = trimmedString.lastIndexOf('/');
+        if (slash <= 0 || slash < trimmedString.lastIndexOf(' ')) {
+            return "";
+        }
+        return trimmedString.substring(slash + 1);
+    }
 
-            ArrayList<RejectionRule> rules = getRejectionRules("rejectionRules.txt");
+    /**
+     * Apply rejection rules
+     */
+    private ArrayList<BaseNounPhrase> applyRejectionRules(ArrayList<BaseNounPhrase> baseNounPhrases, List<List<TaggedWord>> taggedSentences, CompiledRuleSet ruleSet) {
 
-            for (RejectionRule rule : rules) {
+        List<RejectionRule> rules = ruleSet.getRejectionRules();
 
-                String delimiter = rule.getKey(); //The String to seperate the phrase on
-                String operation = rule.getOperation();
+        //Phrases created by splitting another phrase are not checked again
+        Set<BaseNounPhrase> splitPhrases = Collections.newSetFromMap(new IdentityHashMap<BaseNounPhrase, Boolean>());
 
-                 //So every pass can start from the beginning again
+        for (RejectionRule rule : rules) {
 
-                for (int i = 0; i < baseNounPhrases.size(); i++) {
+            String delimiter = rule.getKey(); //The String to seperate the phrase on
+            String operation = rule.getOperation();
 
-                    BaseNounPhrase baseNP = baseNounPhrases.get(i);
-                    String phrase = baseNP.getPhraseStringWithPOSTags();
+             //So every pass can start from the beginning again
 
-                    int initialStartOffset = baseNP.getStartOffset()-1;
+            for (int i = 0; i < baseNounPhrases.size(); i++) {
 
-                    List<TaggedWord> taggedSentence = dictionaryWithTaggedSentenceForBaseNP.get(baseNP);
+                BaseNounPhrase baseNP = baseNounPhrases.get(i);
+                String phrase = baseNP.getPhraseStringWithPOSTags();
 
-                    if (taggedSentence != null) {
-                        String taggedSentenceString = Sentence.listToString(taggedSentence, false);
+                int initialStartOffset = baseNP.getStartOffset()-1;
 
+                if (!splitPhrases.contains(baseNP)) {
+                    List<TaggedWord> taggedSentence = taggedSentences.get(baseNP.getSentenceIndex());
+                    String taggedSentenceString = Sentence.listToString(taggedSentence, false);
 
 
-                        if (phrase.contains(delimiter)) {
 
-                            ArrayList<String> checkStrings = rule.getRules();
+                    //The limit keeps empty parts, so a phrase starting or ending with the delimiter is split into two parts as well
+                    String[] parts = phrase.split(delimiter, -1);
 
-                            boolean oneRejectionRuleMatched = false;
+                    if (phrase.contains(delimiter) && parts.length >= 2) {
 
-                            for (String checkString : checkStrings) {
+                        ArrayList<String> checkStrings = rule.getRules();
 
-                                String[] parts = phrase.split(delimiter);
-                                String partone = parts[0];
-                                String parttwo = parts[1];
+                        boolean oneRejectionRuleMatched = false;
 
-                                checkString = checkString.replace(";@phrase@;", phrase);
-                                checkString = checkString.replace(";@phrasepartone@;", partone);
-                                checkString = checkString.replace(";@phraseparttwo@;", parttwo);
-                                checkString = checkString.replace("$", "\\$");
+                        for (String checkString : checkStrings) {
 
-                                Pattern baseNPRejectionRulesPattern = Pattern.compile(checkString);
-                                Matcher baseNPMatcher = baseNPRejectionRulesPattern.matcher(taggedSentenceString);
+                            String partone = parts[0];
+                            String parttwo = parts[1];
 
-                                if (baseNPMatcher.find()) {
+                            checkString = checkString.replace(";@phrase@;", phrase);
+                            checkString = checkString.replace(";@phrasepartone@;", partone);
+                            checkString = checkString.replace(";@phraseparttwo@;", parttwo);
+                            checkString = checkString.replace("$", "\\$");
 
-                                    oneRejectionRuleMatched = true;
+                            Pattern baseNPRejectionRulesPattern = Pattern.compile(checkString);
+                            Matcher baseNPMatcher = baseNPRejectionRulesPattern.matcher(taggedSentenceString);
 
-                                    dictionaryWithTaggedSentenceForBaseNP.remove(baseNP);
-                                    baseNounPhrases.remove(i);
+                            if (baseNPMatcher.find()) {
 
-                                    for (int j = 0; j < parts.length; j++) {
+                                oneRejectionRuleMatched = true;
 
-                                        String subString = parts[j];
+                                baseNounPhrases.remove(i);
+                                int numberOfNewPhrases = 0;
 
-                                        switch (operation) {
-                                            case "keepright":
-                                                if (j == parts.length - 1) {
-                                                    subString = delimiter + subString;
-                                                }
-                                                break;
-                                            case "keepleft":
-                                                if (j == 0) {
-                                                    subString = subString + delimiter;
-                                                }
-                                                break;
-                                            default:
-                                        }
+                                for (int j = 0; j < parts.length; j++) {
 
-                                        String cleanSubstring = subString.replaceAll("(?<!/)/[A-Z,$,#,€]{1,4}", "").trim();
+                                    String subString = parts[j];
 
-                                        BaseNounPhrase newBaseNP = createBaseNounPhrase(cleanSubstring, subString, taggedSentence, "", initialStartOffset);
-                                        baseNounPhrases.add(i + j, newBaseNP);
-                                        initialStartOffset = newBaseNP.getEndOffset();
+                                    switch (operation) {
+                                        case "keepright":
+                                            if (j == parts.length - 1) {
+                                                subString = delimiter + subString;
+                                            }
+                                            break;
+                                        case "keepleft":
+                                            if (j == 0) {
+                                                subString = subString + delimiter;
+                                            }
+                                            break;
+                                        default:
+                                    }
 
+                                    String cleanSubstring = removePOSTags(subString);
+                                    if (cleanSubstring.isEmpty()) {
+                                        continue; //Nothing is left of the phrase before or after the delimiter
                                     }
 
-                                    baseNP = null;
+                                    BaseNounPhrase newBaseNP = createBaseNounPhrase(cleanSubstring, subString, taggedSentence, baseNP.getSentenceIndex(), "", initialStartOffset, ruleSet.getHeadRules());
+                                    baseNounPhrases.add(i + numberOfNewPhrases, newBaseNP);
+                                    numberOfNewPhrases++;
+                                    splitPhrases.add(newBaseNP);
+                                    initialStartOffset = newBaseNP.getEndOffset();
+
                                 }
-                                if (oneRejectionRuleMatched) {
-                                    break;
+                                if (numberOfNewPhrases == 0) {
+                                    i--; //The next phrase moved to the index of the removed one
                                 }
+
+                                baseNP = null;
+                            }
+                            if (oneRejectionRuleMatched) {
+                                break;
                             }
                         }
                     }
                 }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         return baseNounPhrases;
     }
@@ -292,30 +447,26 @@ public class POSBasedBaseNounPhraseExtractor {
      * @param text The input text
      */
     public void extractBaseNounPhrasesFromText(String text) {
+        result = extractFromText(text);
+    }
 
-        dictionaryWithTaggedSentenceForBaseNP = new HashMap<BaseNounPhrase, List<TaggedWord>>();
+    /**
+     * Extracts all base noun phrases from a given text.
+     * The text can contain multiple sentences.
+     * Results are returned and not saved internally, so this method can be called from several threads at once
+     *
+     * @param text The input text
+     * @return the tagged sentences and the extracted base noun phrases
+     * @throws RuntimeException if applying the rules to a sentence fails or the thread is interrupted. No partial result is returned
+     */
+    public ExtractionResult extractFromText(String text) {
 
+        long startNanos = System.nanoTime();
         List sentences = processString(text);
-        System.out.println("Finished Processing the text");
-
-        System.out.println("Starting tagging");
-        taggedSentences = tagWithPOSTags(sentences);
-        System.out.println("Finished tagging the text");
-
-        System.out.println("Starting application of positive rules");
-        //sentences = null;
-        extractedBaseNounPhrases = applyPositiveRules(taggedSentences);
-        System.out.println("Finished application of positive rules");
-
-
-        System.out.println("Sorting the extracted phrases");
-        sortExtractedPhrases();
-
-
-        System.out.println("Starting application of rejection rules");
-        extractedBaseNounPhrases = applyRejectionRules(extractedBaseNounPhrases);
-        System.out.println("Finished application of rejection rules");
+        metrics.recordStage(ExtractionMetrics.Stage.TOKENIZING, startNanos);
+        log("Finished Processing the text");
 
+        return extract(sentences);
     }
 
     /**
@@ -328,13 +479,112 @@ public class POSBasedBaseNounPhraseExtractor {
      * @throws IOException
      */
     public void extractBaseNounPhrasesFromCoNLLData(String path) throws IOException {
+        BufferedReader br = new BufferedReader(new FileReader(path));
+        try {
+            result = extractFromCoNLL(br);
+        } finally {
+            br.close();
+        }
+    }
+
+    /**
+     * Extracts all base noun phrases from data in the CoNLL data format.
+     * The tokens have to be in the first column
+     * Columns have to be either seperated by a whitespace or a tab
+     * Results are returned and not saved internally, so this method can be called from several threads at once
+     *
+     * @param br reader on the CoNLL data. It is not closed
+     * @return the tagged sentences and the extracted base noun phrases
+     * @throws IOException
+     */
+    public ExtractionResult extractFromCoNLL(BufferedReader br) throws IOException {
 
-        dictionaryWithTaggedSentenceForBaseNP = new HashMap<BaseNounPhrase, List<TaggedWord>>();
+        long startNanos = System.nanoTime();
+        List<List<HasWord>> sentences = readCoNLLSentences(br);
+        metrics.recordStage(ExtractionMetrics.Stage.TOKENIZING, startNanos);
+        log("Finished Processing the text");
+
+        return extract(sentences);
+    }
+
+    /**
+     * Extracts all base noun phrases from text, which is already split into sentences and tokens.
+     * The tokenizer of the tagger is skipped, the sentences are tagged directly
+     * Results are returned and not saved internally, so this method can be called from several threads at once
+     *
+     * @param tokenizedText the sentences and tokens, e.g. from TokenizedText.tokenize
+     * @return the tagged sentences and the extracted base noun phrases
+     */
+    public ExtractionResult extractFromTokenizedText(TokenizedText tokenizedText) {
+        return extract(tokenizedText.asSentences());
+    }
+
+    /**
+     * Extracts all base noun phrases from a given text, which is split by the lightweight tokenizer of TokenizedText
+     * instead of the tokenizer of the tagger
+     * Results are returned and not saved internally, so this method can be called from several threads at once
+     *
+     * @param text The input text
+     * @return the tagged sentences and the extracted base noun phrases
+     */
+    public ExtractionResult extractFromSimpleText(String text) {
+
+        long startNanos = System.nanoTime();
+        TokenizedText tokenizedText = TokenizedText.tokenize(text);
+        metrics.recordStage(ExtractionMetrics.Stage.TOKENIZING, startNanos);
+
+        return extractFromTokenizedText(tokenizedText);
+    }
+
+    /**
+     * Extracts all base noun phrases from sentences, which are already tokenized.
+     * Each String is one sentence with the tokens separated by whitespace
+     * Results are returned and not saved internally, so this method can be called from several threads at once
+     *
+     * @param sentences one String per sentence
+     * @return the tagged sentences and the extracted base noun phrases
+     */
+    public ExtractionResult extractFromSentences(List<String> sentences) {
+
+        long startNanos = System.nanoTime();
+        TokenizedText tokenizedText = TokenizedText.fromSentences(sentences);
+        metrics.recordStage(ExtractionMetrics.Stage.TOKENIZING, startNanos);
+
+        return extractFromTokenizedText(tokenizedText);
+    }
+
+    /**
+     * Extracts all base noun phrases from sentences given as token arrays.
+     * The offsets are assigned like for data in the CoNLL format
+     * Results are returned and not saved internally, so this method can be called from several threads at once
+     *
+     * @param sentences one array of tokens per sentence
+     * @return the tagged sentences and the extracted base noun phrases
+     */
+    public ExtractionResult extractFromTokens(List<String[]> sentences) {
+        return extractFromTokens(sentences, null);
+    }
+
+    /**
+     * Extracts all base noun phrases from sentences given as token arrays with the character offsets of the tokens
+     * Results are returned and not saved internally, so this method can be called from several threads at once
+     *
+     * @param sentences    one array of tokens per sentence
+     * @param beginOffsets one array with the offsets of the first characters of the tokens per sentence or null
+     * @return the tagged sentences and the extracted base noun phrases
+     */
+    public ExtractionResult extractFromTokens(List<String[]> sentences, List<int[]> beginOffsets) {
+        return extractFromTokenizedText(TokenizedText.fromTokens(sentences, beginOffsets));
+    }
+
+    /**
+     * Reads the tokens of CoNLL data sentence by sentence
+     */
+    private List<List<HasWord>> readCoNLLSentences(BufferedReader br) throws IOException {
 
         List<List<HasWord>> sentences = new ArrayList();
         List<HasWord> sentence = new ArrayList<HasWord>();
 
-        BufferedReader br = new BufferedReader(new FileReader(path));
         String currentLine;
         int currentStartPosition = 0;
 
@@ -351,11 +601,11 @@ public class POSBasedBaseNounPhraseExtractor {
 
                 String cleanToken = argumentsInLine[0]/*.replace("\\/", "//")*/;
 
-                int currentEndPosition = currentStartPosition + cleanToken.length() - 1;
+                int currentEndPosition = currentStartPosition + cleanToken.length();
 
                 sentence.add(new Word(cleanToken, currentStartPosition, currentEndPosition));
 
-                currentStartPosition = currentEndPosition + 2;
+                currentStartPosition = currentEndPosition + 1;
 
             } else if (currentLine.equals("") || currentLine.equals("\t\t")) {
                 sentences.add(sentence);
@@ -367,60 +617,53 @@ public class POSBasedBaseNounPhraseExtractor {
         if (sentence.size() >= 0) {
             sentences.add(sentence); //saves last Sentence, when no empty line follows it
         }
+        return sentences;
+    }
 
-        System.out.println("Finished Processing the text");
-
-        System.out.println("Starting tagging");
-        taggedSentences = tagWithPOSTags(sentences);
-        System.out.println("Finished tagging the text");
-
-
-        System.out.println("Starting application of positive rules");
-        extractedBaseNounPhrases = applyPositiveRules(taggedSentences);
-        System.out.println("Finished application of positive rules");
-
-
-        System.out.println("Sorting extracted phrases");
-        sortExtractedPhrases();
+    /**
+     * Tags the tokenized sentences and applies the rules
+     * All state of the extraction is kept in local variables, so extractions can run concurrently
+     */
+    private ExtractionResult extract(List<List<HasWord>> sentences) {
 
+        CompiledRuleSet rules = getRuleSet(); //The same rules are used for the whole extraction, even if they are reloaded meanwhile
 
+        log("Starting tagging");
+        long startNanos = System.nanoTime();
+        List<List<TaggedWord>> taggedSentences = tagWithPOSTags(sentences);
+        startNanos = metrics.recordStage(ExtractionMetrics.Stage.TAGGING, startNanos);
+        log("Finished tagging the text");
 
-        System.out.println("Starting application of rejection rules");
-        extractedBaseNounPhrases = applyRejectionRules(extractedBaseNounPhrases);
-        System.out.println("Finished application of rejection rules");
+        log("Starting application of positive rules");
+        ArrayList<BaseNounPhrase> extractedBaseNounPhrases = applyPositiveRules(taggedSentences, rules);
+        startNanos = metrics.recordStage(ExtractionMetrics.Stage.POSITIVE_RULES, startNanos);
+        log("Finished application of positive rules");
 
 
+        log("Starting application of rejection rules");
+        extractedBaseNounPhrases = applyRejectionRules(extractedBaseNounPhrases, taggedSentences, rules);
+        metrics.recordStage(ExtractionMetrics.Stage.REJECTION_RULES, startNanos);
+        log("Finished application of rejection rules");
 
+        ExtractionResult extractionResult = new ExtractionResult(taggedSentences, extractedBaseNounPhrases, rules.getVersion());
+        metrics.recordDocument(extractionResult);
+        return extractionResult;
     }
 
-    private void sortExtractedPhrases() {
-        Collections.sort(extractedBaseNounPhrases, new Comparator<BaseNounPhrase>() {
-            @Override
-            public int compare(BaseNounPhrase bnp1, BaseNounPhrase bnp2) {
-                if (bnp1 == null) {
-                    return -1;
-                }
-                if (bnp2 == null) {
-                    return 1;
-                }
-                if (bnp1.getStartOffset() > bnp2.getStartOffset()) {
-                    return 1;
-                } else if (bnp1.getStartOffset() == bnp2.getStartOffset()) {
-                    return 0;
-                } else {
-                    return -1;
-                }
-            }
-        });
+    void log(String message) {
+        if (verbose) {
+            System.out.println(message);
+        }
     }
 
     /**
      * Returns the previously extracted base noun phrases as a List of BaseNounPhrase Objects
+     * The phrases are ordered by the index of their sentence and then by their first token
      *
      * @return ArrayList of BaseNounPhrase Objects
      */
     public ArrayList<BaseNounPhrase> getBaseNounPhrases() {
-        return extractedBaseNounPhrases;
+        return result != null ? result.getBaseNounPhrases() : null;
     }
 
     /**
@@ -436,68 +679,39 @@ public class POSBasedBaseNounPhraseExtractor {
     public void writeBaseNounPhrasesAsCoNLLFile(String pathToWrite) throws FileNotFoundException, UnsupportedEncodingException {
 
         PrintWriter writer = new PrintWriter(pathToWrite, "UTF-8");
-
-        int indexNPs = 0;
-        int indexInNP = 0;
-
-        int sizeOfExtractedNPsArray = extractedBaseNounPhrases.size();
-
-        sentenceLoop:
-        for (int indexOfSentences = 0; indexOfSentences < taggedSentences.size(); indexOfSentences++) {
-
-            List<TaggedWord> sentence = taggedSentences.get(indexOfSentences);
-
-            for (int i = 0; i < sentence.size(); i++) {
-
-                if (i == 0 && indexOfSentences != 0) {
-                    writer.println(""); //Create space bewteen two sentences
-                }
-                TaggedWord word = sentence.get(i);
-
-                String token = word.word();
-                String tag = word.tag();
-                String assignedChunkTag = "";
-                int startOffset = word.beginPosition();
-
-
-                if (indexNPs < sizeOfExtractedNPsArray) {
-                    BaseNounPhrase currentNP = extractedBaseNounPhrases.get(indexNPs);
-                    String[] words = currentNP.getPhraseString().split(" ");
-                    String currentWord = words[indexInNP];
-                    int startOfCurrentWord = currentNP.getStartOffset();
-
-                    for (int j = 1; j <= indexInNP; j++) {
-                        startOfCurrentWord = startOfCurrentWord + words[j-1].length() + 1;
-                    }
-
-                    if (startOffset == startOfCurrentWord) {
-                        if (indexInNP == 0) {
-                            assignedChunkTag = "B";
-                        } else {
-                            assignedChunkTag = "I";
-                        }
-                        if (indexInNP + 1 < words.length) {
-                            indexInNP++;
-                        } else {
-                            indexNPs++;
-                            indexInNP = 0;
-                        }
-                    } else {
-                        assignedChunkTag = "O";
-                    }
-
-                    /*if (startOffset > currentNP.getEndOffset()) {
-                        indexNPs++;
-                    }
-                    */
-                    String line = token + "\t" + tag + "\t" + assignedChunkTag;
-                    writer.println(line);
-                } else break sentenceLoop;
-            }
+        try {
+            result.writeAsCoNLL(writer);
+        } finally {
+            writer.close();
         }
+    }
 
-        writer.close();
+    /**
+     * Returns the counters of all extractions of this extractor, e.g. how long each stage took
+     *
+     * @return the metrics, which are updated by every extraction
+     */
+    public ExtractionMetrics getMetrics() {
+        return metrics;
+    }
 
+    /**
+     * Turns the prefilter, which skips positive rules that can not match a sentence, on or off. It is on by default
+     * Both settings produce the same results, turning it off is only useful to compare them
+     *
+     * @param prefilterEnabled true to skip positive rules, which need tags the sentence does not contain
+     */
+    public void setPrefilterEnabled(boolean prefilterEnabled) {
+        this.prefilterEnabled = prefilterEnabled;
+    }
+
+    /**
+     * Turns the progress messages of each extraction on or off. They are on by default
+     *
+     * @param verbose true to print progress messages
+     */
+    public void setVerbose(boolean verbose) {
+        this.verbose = verbose;
     }
 
 
@@ -511,29 +725,38 @@ public class POSBasedBaseNounPhraseExtractor {
      * @return BaseNounPhrase Object with its offsets
      */
     public BaseNounPhrase createBaseNounPhrase(String baseNP, String phraseStringWithPOSTags, List<TaggedWord> taggedSentence, String POSTag, int initialStartOffset) {
+        return createBaseNounPhrase(baseNP, phraseStringWithPOSTags, taggedSentence, -1, POSTag, initialStartOffset, getRuleSet().getHeadRules());
+    }
+
+    /**
+     * Creates BaseNounPhrase Object by finding the start and end offset, the first token and the head
+     *
+     * @param baseNP                  the string of the extracted baseNP
+     * @param phraseStringWithPOSTags the string of the extracted baseNP with each POS appended to each token using /
+     * @param taggedSentence          the sentence the phrase was extracted from
+     * @param sentenceIndex           the index of the sentence the phrase was extracted from
+     * @param POSTag                  the POS Tag of the last token
+     * @param headRules               the rules, which find the head of the phrase
+     * @return BaseNounPhrase Object with its offsets
+     */
+    BaseNounPhrase createBaseNounPhrase(String baseNP, String phraseStringWithPOSTags, List<TaggedWord> taggedSentence, int sentenceIndex, String POSTag, int initialStartOffset,
+                                        HeadRules headRules) {
 
         int startOffset = -1;
         int endOffset = -1;
+        int startToken = -1;
 
         String wordsInBaseNP[] = baseNP.split(" ");
         String firstWord = wordsInBaseNP[0];
 
-        int baseNPLength = baseNP.length();
 
-
-        for (int indexOTaggedWords = 0; indexOTaggedWords < taggedSentence.size() ; indexOTaggedWords++) {
+        for (int indexOTaggedWords = 0; indexOTaggedWords + wordsInBaseNP.length <= taggedSentence.size() ; indexOTaggedWords++) {
 
             TaggedWord currentWord = taggedSentence.get(indexOTaggedWords);
 
             String cleanCurrentWord = currentWord.word()/*.replace("\\/", "//")*/;
 
             if (cleanCurrentWord.equals(firstWord)) { //Checks if word is the same as the first word of the baseNP
-                int extra = 0;
-                if (cleanCurrentWord.equals(firstWord + ".")) {
-                    extra = 1;
-                } else if (cleanCurrentWord.equals("'" + firstWord)) {
-                    extra = 1;
-                }
                 if ((currentWord.beginPosition() > initialStartOffset) && startOffset < 0) { //Only sets startOffset if the word is after the beginning of the last baseNP and the startOffset has not been set yet
                     boolean correctStart = true;
                     for (int indexInBaseNP = 0; indexInBaseNP < wordsInBaseNP.length;indexInBaseNP++) {
@@ -544,8 +767,11 @@ public class POSBasedBaseNounPhraseExtractor {
                         }
                     }
                     if (correctStart) {
+                        //The offsets of the tokens are used, because the tokens do not have to be separated by exactly one character
+                        TaggedWord lastWord = taggedSentence.get(indexOTaggedWords + wordsInBaseNP.length - 1);
                         startOffset = currentWord.beginPosition();
-                        endOffset = startOffset + baseNPLength + extra - 1;
+                        endOffset = lastWord.endPosition() - 1;
+                        startToken = indexOTaggedWords;
                         break;
                     }
                 }
@@ -555,134 +781,18 @@ public class POSBasedBaseNounPhraseExtractor {
         if (endOffset == -1) {
             System.out.println("Something went wrong while finding the appropriate offsets.");
         }
-        return new BaseNounPhrase(baseNP, phraseStringWithPOSTags, startOffset, endOffset, POSTag);
+        return new BaseNounPhrase(baseNP, phraseStringWithPOSTags, startOffset, endOffset, POSTag, sentenceIndex, startToken, headRules);
     }
 
-    /**
-     * Extracts the RegEx String from the rules files
-     * Substitues all placeholders accordingly
-     *
-     * @param rulesFilePath
-     * @return Complete RegEx String
-     * @throws IOException
-     */
-    private String getRegExString(String rulesFilePath) throws IOException {
-
-        String rulesRegEx = "(";
-
-        BufferedReader br = new BufferedReader(new FileReader(rulesFilePath));
-        String currentLine;
-
-        ArrayList<String> rules = new ArrayList<String>();
-        HashMap<String, String> dictionaryOfRules = new HashMap<String, String>();
-
-        Pattern ruleNamePattern = Pattern.compile("([^\\s]+)(?:[\\;]{2}(?=[^@]))");
-        Matcher ruleNameMatcher = ruleNamePattern.matcher("");
-
-        /**
-         * Creates dictionary with rules and their names
-         */
-
-        while (null != (currentLine = br.readLine())) { //first rules in file are checked first
-            if (!currentLine.substring(0, 1).equals("#")) {
-
-                rules.add(currentLine);
-
-                for (int i = 0; i < rules.size(); i++) {
-
-                    String ruleLine = rules.get(i);
-                    ruleNameMatcher.reset(ruleLine);
-
-                    if (ruleNameMatcher.find()) {
-
-                        String ruleName = ruleNameMatcher.group(0);
-                        String rule = ruleLine.replaceAll(ruleName, "");
-
-                        dictionaryOfRules.put(ruleName.replaceAll("\\;\\;", ""), rule);
-
-                        rules.remove(i);
-                        rules.add(i, rule);
-
-                    }
-                }
-            }
-        }
-
-        /**
-         * Replaces rule placeholders with the actual rules
-         */
-        Pattern ruleReplacementPattern = Pattern.compile(";@[^\\s]+?@;");
-        Matcher ruleReplacementMatcher = ruleReplacementPattern.matcher("");
-
-        for (int i = 0; i < rules.size(); i++) {
-
-            String rule = rules.get(i);
-            ruleReplacementMatcher.reset(rule);
-
-            while (ruleReplacementMatcher.find()) {
-
-                String ruleNameToken = ruleReplacementMatcher.group(0);
-                String ruleName = ruleNameToken.replaceAll("(@;|;@)", "");
-
-                String ruleToInsert = dictionaryOfRules.get(ruleName);
-
-                rule = rule.replace(ruleNameToken, ruleToInsert);
-                ruleReplacementMatcher.reset(rule);
-
-            }
-
-            /**
-             * Creates final Regex
-             */
-            rule = "(" + rule + ")";
-            if (!rulesRegEx.equals("(")) {
-                rulesRegEx = rulesRegEx + "|" + rule;
-            } else {
-                rulesRegEx = rulesRegEx + rule;
-            }
-        }
-
-        rulesRegEx = rulesRegEx + ")";
-        return rulesRegEx;
+    public List<List<TaggedWord>> getTaggedSentences() {
+        return result != null ? result.getTaggedSentences() : null;
     }
 
     /**
-     * Extracts the List of Rejection Rules from the rejection rules files
-     * Substitues all placeholders accordingly
-     * Organizes Rules by their key/delimiter
-     *
-     * @param rulesFilePath
-     * @return List of RejectionRule Objects
-     * @throws IOException
+     * Stops the threads, which apply the positive rules. The extractor can not be used afterwards
      */
-    private ArrayList<RejectionRule> getRejectionRules(String rulesFilePath) throws IOException {
-        BufferedReader br = new BufferedReader(new FileReader(rulesFilePath));
-        String currentLine;
-
-        ArrayList<RejectionRule> allRules = new ArrayList<RejectionRule>();
-        RejectionRule rule = null;
-
-        while (null != (currentLine = br.readLine())) { //first rules in file are checked first
-            String firstCharacter = currentLine.substring(0, 1);
-            if (!firstCharacter.equals("#")) {
-
-                if (firstCharacter.equals("∞")) {
-                    String key = currentLine.substring(1, currentLine.lastIndexOf("∞"));
-                    String operation = currentLine.substring(currentLine.indexOf(";") + 1, currentLine.lastIndexOf(";"));
-
-                    rule = new RejectionRule(key, operation);
-                    allRules.add(rule);
-                } else if (rule != null) {
-                    rule.addRule(currentLine);
-                }
-
-            }
-        }
-        return allRules;
-    }
-
-    public List<List<TaggedWord>> getTaggedSentences() {
-        return taggedSentences;
+    public void close() {
+        ruleExecutor.shutdown();
     }
 }
 
@@ -0,0 +1,244 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.*;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Counts the normalised phrase Strings and heads of the extracted base noun phrases while the extraction runs.
+ * Phrases and heads are normalised by lower casing them and collapsing whitespace.
+ *
+ * By default all phrases and heads are counted exactly. For huge vocabularies a bounded aggregator estimates the counts
+ * with a count-min sketch and only keeps the most frequent phrases and heads, so its memory does not grow with the corpus.
+ *
+ * Aggregators can be written to a file and merged, e.g. to combine the partial results of several processes.
+ * The main method merges such files and prints the most frequent phrases and heads
+ *
+ * Usage: PhraseAggregator [--top k] file...
+ */
+public class PhraseAggregator implements BaseNounPhraseSink {
+
+    private static final int FILE_MAGIC = 0x524E5041;
+    private static final int FILE_VERSION = 3;
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final FrequencyCounter phrases;
+    private final FrequencyCounter heads;
+
+
+    /**
+     * Creates an aggregator, which counts all phrases and heads exactly
+     */
+    public PhraseAggregator() {
+        this(new FrequencyCounter(), new FrequencyCounter());
+    }
+
+    /**
+     * Creates an aggregator with bounded memory.
+     * The counts are estimated by a count-min sketch of the given size, they are never too low
+     * and too high by at most 2 / sketchWidth of all phrases with a probability of 1 - 0.5^sketchDepth
+     *
+     * @param sketchWidth          number of counters in each row of the sketch
+     * @param sketchDepth          number of rows of the sketch
+     * @param numberOfHeavyHitters number of most frequent phrases and heads, which are kept
+     */
+    public PhraseAggregator(int sketchWidth, int sketchDepth, int numberOfHeavyHitters) {
+        this(new FrequencyCounter(sketchWidth, sketchDepth, numberOfHeavyHitters),
+                new FrequencyCounter(sketchWidth, sketchDepth, numberOfHeavyHitters));
+    }
+
+    private PhraseAggregator(FrequencyCounter phrases, FrequencyCounter heads) {
+        this.phrases = phrases;
+        this.heads = heads;
+    }
+
+    /**
+     * Counts the phrase String and the head of a phrase
+     *
+     * @param baseNP the extracted phrase
+     */
+    @Override
+    public void accept(BaseNounPhrase baseNP) {
+        phrases.add(normalise(baseNP.getPhraseString()));
+        heads.add(normalise(baseNP.getHead()));
+    }
+
+    /**
+     * Normalises a phrase String or head the same way as it is counted
+     *
+     * @param string phrase String or head
+     * @return lower cased String with single spaces
+     */
+    public static String normalise(String string) {
+        return WHITESPACE.matcher(string.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @return true if the counts are estimated with bounded memory
+     */
+    public boolean isBounded() {
+        return phrases.isBounded();
+    }
+
+    /**
+     * Returns how often a phrase occurred. The phrase is normalised first.
+     * For bounded aggregators this is an estimate, which may be too high
+     *
+     * @param phrase phrase String
+     * @return count of the phrase
+     */
+    public long getPhraseCount(String phrase) {
+        return phrases.getCount(normalise(phrase));
+    }
+
+    /**
+     * Returns how often a head occurred. The head is normalised first.
+     * For bounded aggregators this is an estimate, which may be too high
+     *
+     * @param head head of a phrase
+     * @return count of the head
+     */
+    public long getHeadCount(String head) {
+        return heads.getCount(normalise(head));
+    }
+
+    /**
+     * @return number of all counted phrases
+     */
+    public long getNumberOfPhrases() {
+        return phrases.getTotal();
+    }
+
+    /**
+     * @return number of different phrases, which are kept
+     */
+    public int getNumberOfDifferentPhrases() {
+        return phrases.size();
+    }
+
+    /**
+     * @return number of different heads, which are kept
+     */
+    public int getNumberOfDifferentHeads() {
+        return heads.size();
+    }
+
+    /**
+     * Returns the most frequent phrases
+     *
+     * @param k number of phrases to return
+     * @return normalised phrase Strings with their counts, most frequent first
+     */
+    public List<Map.Entry<String, Long>> getTopPhrases(int k) {
+        return phrases.getTop(k);
+    }
+
+    /**
+     * Returns the most frequent heads
+     *
+     * @param k number of heads to return
+     * @return normalised heads with their counts, most frequent first
+     */
+    public List<Map.Entry<String, Long>> getTopHeads(int k) {
+        return heads.getTop(k);
+    }
+
+    /**
+     * Adds the counts of another aggregator. Exact counts can be added to any aggregator,
+     * bounded counts only to bounded aggregators with a sketch of the same size
+     *
+     * @param other the other aggregator, e.g. read from the partial result of another process
+     */
+    public void merge(PhraseAggregator other) {
+        phrases.merge(other.phrases);
+        heads.merge(other.heads);
+    }
+
+    /**
+     * Writes the counts in a binary format, which can be read with readFrom
+     *
+     * @param outputStream the stream to write to. It is not closed
+     * @throws IOException
+     */
+    public void writeTo(OutputStream outputStream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(outputStream));
+        out.writeInt(FILE_MAGIC);
+        out.writeInt(FILE_VERSION);
+        phrases.writeTo(out);
+        heads.writeTo(out);
+        out.flush();
+    }
+
+    /**
+     * Reads counts, which were written with writeTo
+     *
+     * @param inputStream the stream to read from. It is not closed
+     * @return the aggregator with the read counts
+     * @throws IOException if the data is not in the format of writeTo
+     */
+    public static PhraseAggregator readFrom(InputStream inputStream) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(inputStream));
+        if (in.readInt() != FILE_MAGIC) {
+            throw new IOException("Not a file with phrase counts");
+        }
+        int version = in.readInt();
+        if (version != FILE_VERSION) {
+            throw new IOException("Unsupported version of phrase counts: " + version);
+        }
+        return new PhraseAggregator(FrequencyCounter.readFrom(in), FrequencyCounter.readFrom(in));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int k = 20;
+        int firstFile = 0;
+        if (args.length >= 2 && args[0].equals("--top")) {
+            k = Integer.parseInt(args[1]);
+            firstFile = 2;
+        }
+        if (args.length <= firstFile) {
+            System.out.println("Usage: PhraseAggregator [--top k] file...");
+            return;
+        }
+
+        PhraseAggregator aggregator = null;
+        for (int i = firstFile; i < args.length; i++) {
+            InputStream in = new FileInputStream(args[i]);
+            try {
+                PhraseAggregator partialResult = readFrom(in);
+                if (aggregator == null) {
+                    aggregator = partialResult;
+                } else {
+                    aggregator.merge(partialResult);
+                }
+            } finally {
+                in.close();
+            }
+        }
+
+        System.out.println(aggregator.getNumberOfPhrases() + " phrases from " + (args.length - firstFile) + " files");
+        System.out.println("Most frequent phrases:");
+        for (Map.Entry<String, Long> phrase : aggregator.getTopPhrases(k)) {
+            System.out.println("  " + phrase.getValue() + "\t" + phrase.getKey());
+        }
+        System.out.println("Most frequent heads:");
+        for (Map.Entry<String, Long> head : aggregator.getTopHeads(k)) {
+            System.out.println("  " + head.getValue() + "\t" + head.getKey());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import edu.stanford.nlp.ling.Sentence;
+import edu.stanford.nlp.ling.TaggedWord;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Checks that the prefilter does not change the matches of the positive rules.
+ * Random tagged sentences are matched once with all rules and once with the rules the prefilter leaves active,
+ * no tagger model is needed. Besides the differences it reports how many sentences were skipped or checked with fewer rules,
+ * so a change of the rules, which makes the prefilter useless, is noticed as well.
+ *
+ * The program exits with status 1, if the matches differ for any sentence, so it can be used as a regression gate.
+ *
+ * Usage: PrefilterCheck [--positive-rules path --rejection-rules path] [--sentences n] [--seed n]
+ */
+public class PrefilterCheck {
+
+    /**
+     * Number of differing sentences printed
+     */
+    private static final int MAX_PRINTED_DIFFERENCES = 5;
+
+    private static final int MAX_SENTENCE_LENGTH = 12;
+
+    /**
+     * Tags, which occur often in real sentences and are picked more often than the others
+     */
+    private static final String[] COMMON_TAGS = {"NN", "NNS", "NNP", "NNPS", "DT", "JJ", "JJR", "JJS", "CD", "IN", "TO", "CC",
+            "POS", "PRP", "PRP$", "VBN", "VBG", "VBZ", "RB", "RBS", "WDT", "WP", "EX", ",", "$"};
+
+    /**
+     * Words used in the rules files, so rules with words are matched as well
+     */
+    private static final String[] WORDS = {"about", "About", "than", "more", "less", "up", "to", "'s", "'", "that", "That",
+            "which", "there", "this", "these", "all", "each", "another", "and", "only", "due", "just", "over", "nearly",
+            "%", "$", "Mr.", "Mrs.", "Dr."};
+
+    private final CompiledRuleSet ruleSet;
+    private final String[] tagSet;
+
+
+    public PrefilterCheck(CompiledRuleSet ruleSet, String[] tagSet) {
+        this.ruleSet = ruleSet;
+        this.tagSet = tagSet;
+    }
+
+    /**
+     * Creates a random tagged sentence. Few tokens get a tag outside of the tag set or a slash inside the word
+     */
+    private List<TaggedWord> createSentence(Random random) {
+        int length = 1 + random.nextInt(MAX_SENTENCE_LENGTH);
+        List<TaggedWord> sentence = new ArrayList<TaggedWord>(length);
+        for (int i = 0; i < length; i++) {
+            String tag = random.nextInt(4) == 0 ? tagSet[random.nextInt(tagSet.length)] : COMMON_TAGS[random.nextInt(COMMON_TAGS.length)];
+            if (random.nextInt(60) == 0) {
+                tag = "XYZ";
+            }
+            String word = random.nextInt(3) == 0 ? WORDS[random.nextInt(WORDS.length)] : "w" + i;
+            if (random.nextInt(200) == 0) {
+                word = "a/b";
+            }
+            sentence.add(new TaggedWord(word, tag));
+        }
+        return sentence;
+    }
+
+    private static List<String> findMatches(Pattern pattern, String sentence) {
+        List<String> matches = new ArrayList<String>();
+        if (pattern == null) {
+            return matches;
+        }
+        Matcher matcher = pattern.matcher(sentence);
+        while (matcher.find()) {
+            matches.add(matcher.start() + ":" + matcher.group());
+        }
+        return matches;
+    }
+
+    /**
+     * Matches random sentences with and without the prefilter
+     *
+     * @param numberOfSentences number of random sentences
+     * @param seed              seed of the random sentences
+     * @return number of sentences with different matches
+     */
+    public int check(int numberOfSentences, long seed) {
+        RulePrefilter prefilter = ruleSet.getPrefilter();
+        Random random = new Random(seed);
+
+        int differentSentences = 0;
+        int skippedSentences = 0;
+        int narrowedSentences = 0;
+        for (int n = 0; n < numberOfSentences; n++) {
+            List<TaggedWord> taggedSentence = createSentence(random);
+            String sentence = Sentence.listToString(taggedSentence, false);
+
+            Pattern filteredPattern = ruleSet.getPositiveRulesPattern(prefilter.getTagMask(taggedSentence));
+            if (filteredPattern == null) {
+                skippedSentences++;
+            } else if (filteredPattern != ruleSet.getPositiveRulesPattern()) {
+                narrowedSentences++;
+            }
+
+            List<String> matches = findMatches(ruleSet.getPositiveRulesPattern(), sentence);
+            List<String> filteredMatches = findMatches(filteredPattern, sentence);
+            if (!matches.equals(filteredMatches)) {
+                differentSentences++;
+                if (differentSentences <= MAX_PRINTED_DIFFERENCES) {
+                    System.out.println("Sentence: " + sentence);
+                    System.out.println("  all rules:  " + matches);
+                    System.out.println("  prefilter:  " + filteredMatches);
+                }
+            }
+        }
+
+        System.out.println(skippedSentences + " of " + numberOfSentences + " sentences skipped, "
+                + narrowedSentences + " checked with fewer rules");
+        System.out.println(differentSentences + " of " + numberOfSentences + " sentences differ");
+        return differentSentences;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> options = new HashMap<String, String>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (!args[i].startsWith("--") || i + 1 == args.length) {
+                printUsage();
+                return;
+            }
+            options.put(args[i].substring(2), args[i + 1]);
+        }
+
+        RuleSource positiveRuleSource = RuleSource.fromFile(options.containsKey("positive-rules") ? options.get("positive-rules") : "positiveRules.txt");
+        RuleSource rejectionRuleSource = RuleSource.fromFile(options.containsKey("rejection-rules") ? options.get("rejection-rules") : "rejectionRules.txt");
+        int numberOfSentences = options.containsKey("sentences") ? Integer.parseInt(options.get("sentences")) : 100000;
+        long seed = options.containsKey("seed") ? Long.parseLong(options.get("seed")) : 1;
+
+        CompiledRuleSet ruleSet = CompiledRuleSet.compile(positiveRuleSource, rejectionRuleSource);
+        if (!ruleSet.getPrefilter().isEnabled()) {
+            System.out.println("The prefilter is not used for these rules");
+            return;
+        }
+
+        if (new PrefilterCheck(ruleSet, RulePrefilter.PENN_TREEBANK_TAGS).check(numberOfSentences, seed) > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("Usage: PrefilterCheck [--positive-rules path --rejection-rules path] [--sentences n] [--seed n]");
+    }
+}
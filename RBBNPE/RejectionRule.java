@@ -0,0 +1,47 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.util.ArrayList;
+
+/**
+ * This class represents the rejection rules conveniently
+ */
+class RejectionRule {
+    private String key;
+    private String operation;
+    ArrayList<String> rules;
+
+    public RejectionRule(String key, String operation) {
+        this.key = key;
+        this.operation = operation;
+        this.rules = new ArrayList<String>();
+    }
+
+    public void addRule(String newRule) {
+        rules.add(newRule);
+    }
+
+    public ArrayList<String> getRules() {
+        return rules;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+}
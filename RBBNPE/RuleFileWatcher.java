@@ -0,0 +1,174 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Watches the rules files of an extractor and recompiles the rules in the background when one of them changes.
+ * The new rules are swapped in atomically. Extractions which already started finish with the old rules.
+ * If the changed rules can not be compiled the old rules stay active.
+ * When the extractor switches to other rule sources, their files are watched instead.
+ * Only rule sources backed by a file can be watched
+ */
+public class RuleFileWatcher implements Closeable {
+
+    /**
+     * Editors often write a file in several steps, so changes are collected for this time before recompiling
+     */
+    private static final long SETTLE_TIME_MILLIS = 200;
+
+    private final POSBasedBaseNounPhraseExtractor extractor;
+    private final WatchService watchService;
+    private final Map<Path, WatchKey> watchedDirectories = new HashMap<Path, WatchKey>();
+    private volatile Set<Path> watchedFiles = new HashSet<Path>();
+    private final Thread watcherThread;
+
+    private volatile boolean running = true;
+
+    RuleFileWatcher(POSBasedBaseNounPhraseExtractor extractor) throws IOException {
+        this.extractor = extractor;
+        this.watchService = FileSystems.getDefault().newWatchService();
+
+        updateWatchedFiles();
+
+        watcherThread = new Thread("RBBNPE rule file watcher") {
+            public void run() {
+                watch();
+            }
+        };
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /**
+     * Watches the files of the current rule sources of the extractor and stops watching directories without rules files
+     */
+    private synchronized void updateWatchedFiles() throws IOException {
+        Set<Path> files = new HashSet<Path>();
+        addSource(files, extractor.getPositiveRuleSource());
+        addSource(files, extractor.getRejectionRuleSource());
+        if (extractor.getHeadRuleSource() != null) {
+            addSource(files, extractor.getHeadRuleSource());
+        }
+
+        Set<Path> directories = new HashSet<Path>();
+        for (Path file : files) {
+            Path directory = file.getParent();
+            directories.add(directory);
+            if (!watchedDirectories.containsKey(directory)) {
+                watchedDirectories.put(directory,
+                        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY));
+            }
+        }
+        Iterator<Map.Entry<Path, WatchKey>> iterator = watchedDirectories.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, WatchKey> watchedDirectory = iterator.next();
+            if (!directories.contains(watchedDirectory.getKey())) {
+                watchedDirectory.getValue().cancel();
+                iterator.remove();
+            }
+        }
+        watchedFiles = files;
+    }
+
+    private static void addSource(Set<Path> files, RuleSource source) {
+        Path path = source.getWatchablePath();
+        if (path != null) {
+            files.add(path);
+        }
+    }
+
+    /**
+     * Called by the extractor after its rule sources changed
+     */
+    void ruleSourcesChanged() {
+        try {
+            updateWatchedFiles();
+        } catch (IOException e) {
+            extractor.log("Could not watch the new rules files: " + e.getMessage());
+        }
+    }
+
+    private void watch() {
+        while (running) {
+            try {
+                WatchKey key = watchService.take();
+                boolean rulesChanged = collectChanges(key);
+
+                //Waits until the file has been written completely and collects the following events
+                while ((key = watchService.poll(SETTLE_TIME_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    rulesChanged = collectChanges(key) || rulesChanged;
+                }
+
+                if (rulesChanged) {
+                    reload();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+        }
+    }
+
+    private boolean collectChanges(WatchKey key) {
+        boolean rulesChanged = false;
+        Path directory = (Path) key.watchable();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                rulesChanged = true;
+            } else if (watchedFiles.contains(directory.resolve((Path) event.context()))) {
+                rulesChanged = true;
+            }
+        }
+        key.reset();
+        return rulesChanged;
+    }
+
+    private void reload() {
+        try {
+            CompiledRuleSet ruleSet = extractor.reloadRules();
+            extractor.log("Reloaded rules, now using version " + ruleSet.getVersion());
+        } catch (IOException e) {
+            extractor.log("Could not reload rules, keeping the previous version: " + e.getMessage());
+        } catch (PatternSyntaxException e) {
+            extractor.log("Could not compile changed rules, keeping the previous version: " + e.getDescription());
+        } catch (RuntimeException e) {
+            extractor.log("Could not compile changed rules, keeping the previous version: " + e);
+        }
+    }
+
+    /**
+     * Stops watching the rules files. The currently active rules stay active
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        extractor.removeRuleFileWatcher(this);
+        watchService.close();
+        watcherThread.interrupt();
+    }
+}
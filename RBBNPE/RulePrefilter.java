@@ -0,0 +1,558 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import edu.stanford.nlp.ling.TaggedWord;
+
+import java.util.*;
+
+/**
+ * Decides cheaply which positive rules can possibly match a tagged sentence, before any RegEx is run.
+ *
+ * Every rule is analysed once, when the rules are compiled. For each rule a list of POS tag bitmasks is derived:
+ * a match of the rule always contains a token with one of the tags of each bitmask.
+ * A tag is required, when the rule contains it as a literal after a slash, e.g. \/CD or \/(?:NNS|NN),
+ * or as a literal without a slash at the end of a token, e.g. PRP\$\s.
+ * Each sentence gets a bitmask of the tags it contains and a rule is only active, if all of its bitmasks intersect with it.
+ *
+ * The analysis is conservative. Parts of a rule which it does not understand simply do not add requirements,
+ * so a rule is never skipped on a sentence, in which it could match.
+ * Sentences with a slash inside a word could contain a tag-like literal in the word, so all rules stay active for them
+ */
+public class RulePrefilter {
+
+    /**
+     * The tags of the PennTreebank. Tags which are not in the tag set share one bit
+     */
+    public static final String[] PENN_TREEBANK_TAGS = {"CC", "CD", "DT", "EX", "FW", "IN", "JJ", "JJR", "JJS", "LS", "MD",
+            "NN", "NNS", "NNP", "NNPS", "PDT", "POS", "PRP", "PRP$", "RB", "RBR", "RBS", "RP", "SYM", "TO", "UH",
+            "VB", "VBD", "VBG", "VBN", "VBP", "VBZ", "WDT", "WP", "WP$", "WRB",
+            "$", "#", "``", "''", "-LRB-", "-RRB-", ",", ".", ":"};
+
+    /**
+     * Only this many rules can be filtered, because the active rules are stored in a long
+     */
+    public static final int MAX_RULES = 64;
+
+    private static final int OTHER_TAG_BIT = 63;
+    private static final long ALL_TAGS = -1L;
+
+    /**
+     * Upper bound for the number of different strings a part of a rule can match, before it is treated as unknown
+     */
+    private static final int MAX_LITERALS = 64;
+
+    private final HashMap<String, Integer> bitOfTag = new HashMap<String, Integer>();
+    private final long[][] requirementsOfRules;
+    private final long allRules;
+
+
+    /**
+     * @param rules  the positive rules with all placeholders substituted, in the order they are checked
+     * @param tagSet the POS tags the tagger can assign. At most 63 tags get their own bit
+     */
+    public RulePrefilter(List<String> rules, String[] tagSet) {
+        for (String tag : tagSet) {
+            if (bitOfTag.size() < OTHER_TAG_BIT && !bitOfTag.containsKey(tag)) {
+                bitOfTag.put(tag, bitOfTag.size());
+            }
+        }
+
+        if (rules.size() > MAX_RULES) {
+            System.out.println("More than " + MAX_RULES + " positive rules, the prefilter is not used");
+            requirementsOfRules = new long[0][];
+            allRules = 0;
+            return;
+        }
+
+        requirementsOfRules = new long[rules.size()][];
+        for (int i = 0; i < rules.size(); i++) {
+            requirementsOfRules[i] = analyseRule(rules.get(i));
+        }
+        allRules = rules.size() == MAX_RULES ? -1L : (1L << rules.size()) - 1;
+    }
+
+    /**
+     * Returns whether rules can be filtered at all
+     *
+     * @return false, if there are too many rules
+     */
+    public boolean isEnabled() {
+        return requirementsOfRules.length > 0;
+    }
+
+    /**
+     * Returns the bitmask with one bit for each rule, the first rule being the lowest bit
+     *
+     * @return bitmask of all rules
+     */
+    public long getAllRules() {
+        return allRules;
+    }
+
+    /**
+     * Creates the bitmask of the tags in the sentence
+     *
+     * @param taggedSentence the tagged sentence
+     * @return bitmask of the tags in the sentence
+     */
+    public long getTagMask(List<TaggedWord> taggedSentence) {
+        long tagMask = 0;
+        for (TaggedWord taggedWord : taggedSentence) {
+            if (taggedWord.word().indexOf('/') >= 0) {
+                return ALL_TAGS;
+            }
+            Integer bit = bitOfTag.get(taggedWord.tag());
+            tagMask |= 1L << (bit != null ? bit : OTHER_TAG_BIT);
+        }
+        return tagMask;
+    }
+
+    /**
+     * Returns the rules, which can possibly match a sentence with the given tags
+     *
+     * @param tagMask bitmask of the tags in the sentence
+     * @return bitmask with one bit for each rule, which can match
+     */
+    public long getActiveRules(long tagMask) {
+        long activeRules = 0;
+        ruleLoop:
+        for (int i = 0; i < requirementsOfRules.length; i++) {
+            for (long requirement : requirementsOfRules[i]) {
+                if ((requirement & tagMask) == 0) {
+                    continue ruleLoop;
+                }
+            }
+            activeRules |= 1L << i;
+        }
+        return activeRules;
+    }
+
+
+    /**
+     * Derives the tag bitmasks required by a rule
+     *
+     * @param rule RegEx of the rule
+     * @return bitmasks, which all have to intersect with the tags of a sentence for the rule to match
+     */
+    private long[] analyseRule(String rule) {
+        try {
+            RuleParser parser = new RuleParser(rule);
+            Analysis analysis = parser.parseAlternation();
+            if (parser.position != rule.length()) {
+                return new long[0];
+            }
+            List<Long> requirements = requirementsOf(analysis);
+            long[] result = new long[requirements.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = requirements.get(i);
+            }
+            return result;
+        } catch (UnsupportedOperationException e) {
+            return new long[0]; //Rule uses RegEx syntax the analysis does not know, it is always checked
+        }
+    }
+
+    /**
+     * Result of the analysis of one part of a rule
+     */
+    private static class Analysis {
+        /**
+         * All strings this part can match or null, if these are unknown or too many
+         */
+        Set<String> literals;
+        /**
+         * Tag bitmasks, which all have to be met by a match of this part
+         */
+        List<Long> requirements = new ArrayList<Long>();
+
+        static Analysis literal(String literal) {
+            Analysis analysis = new Analysis();
+            analysis.literals = new HashSet<String>();
+            analysis.literals.add(literal);
+            return analysis;
+        }
+
+        static Analysis unknown() {
+            return new Analysis();
+        }
+    }
+
+    private List<Long> requirementsOf(Analysis analysis) {
+        List<Long> requirements = new ArrayList<Long>(analysis.requirements);
+        if (analysis.literals != null) {
+            long mask = maskOfLiterals(analysis.literals);
+            if (mask != ALL_TAGS) {
+                requirements.add(mask);
+            }
+        }
+        return requirements;
+    }
+
+    /**
+     * One of the strings is contained in a match, so one of their tags is required
+     *
+     * @return the tags, of which one is required or ALL_TAGS, if one of the strings contains no tag
+     */
+    private long maskOfLiterals(Set<String> literals) {
+        long mask = 0;
+        for (String literal : literals) {
+            long maskOfLiteral = maskOfLiteral(literal);
+            if (maskOfLiteral == ALL_TAGS) {
+                return ALL_TAGS;
+            }
+            mask |= maskOfLiteral;
+        }
+        return mask;
+    }
+
+    /**
+     * Finds the last slash in the string, which is followed by the beginning of a tag.
+     * In a sentence without slashes in words that slash separates a word from its tag,
+     * so the tag has to start with the characters after the slash.
+     * Without such a slash the characters before the first whitespace end a token, so the tag has to end with them
+     */
+    private long maskOfLiteral(String literal) {
+        for (int slash = literal.lastIndexOf('/'); slash >= 0; slash = literal.lastIndexOf('/', slash - 1)) {
+            int end = slash + 1;
+            while (end < literal.length() && literal.charAt(end) != '/' && !Character.isWhitespace(literal.charAt(end))) {
+                end++;
+            }
+            if (end > slash + 1) {
+                String tagPrefix = literal.substring(slash + 1, end);
+                long mask = 1L << OTHER_TAG_BIT;
+                for (Map.Entry<String, Integer> entry : bitOfTag.entrySet()) {
+                    if (entry.getKey().startsWith(tagPrefix)) {
+                        mask |= 1L << entry.getValue();
+                    }
+                }
+                return mask;
+            }
+        }
+
+        int endOfToken = 0;
+        while (endOfToken < literal.length() && !Character.isWhitespace(literal.charAt(endOfToken))) {
+            endOfToken++;
+        }
+        if (endOfToken > 0 && endOfToken < literal.length() && literal.lastIndexOf('/', endOfToken) < 0) {
+            String tagSuffix = literal.substring(0, endOfToken);
+            long mask = 1L << OTHER_TAG_BIT;
+            for (Map.Entry<String, Integer> entry : bitOfTag.entrySet()) {
+                if (entry.getKey().endsWith(tagSuffix)) {
+                    mask |= 1L << entry.getValue();
+                }
+            }
+            return mask;
+        }
+        return ALL_TAGS;
+    }
+
+    private static Set<String> concatenate(Set<String> prefixes, Set<String> suffixes) {
+        if (prefixes.size() * suffixes.size() > MAX_LITERALS) {
+            return null;
+        }
+        Set<String> result = new HashSet<String>();
+        for (String prefix : prefixes) {
+            for (String suffix : suffixes) {
+                result.add(prefix + suffix);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Small recursive descent parser for the part of the java RegEx syntax used in the rules files
+     */
+    private class RuleParser {
+        private final String rule;
+        private int position = 0;
+
+        RuleParser(String rule) {
+            this.rule = rule;
+        }
+
+        private boolean hasNext() {
+            return position < rule.length();
+        }
+
+        private char peek() {
+            return rule.charAt(position);
+        }
+
+        Analysis parseAlternation() {
+            List<Analysis> alternatives = new ArrayList<Analysis>();
+            alternatives.add(parseSequence());
+            while (hasNext() && peek() == '|') {
+                position++;
+                alternatives.add(parseSequence());
+            }
+            if (alternatives.size() == 1) {
+                return alternatives.get(0);
+            }
+
+            Analysis result = new Analysis();
+            result.literals = new HashSet<String>();
+            long unionOfRequirements = 0;
+            for (Analysis alternative : alternatives) {
+                if (result.literals != null && alternative.literals != null && result.literals.size() + alternative.literals.size() <= MAX_LITERALS) {
+                    result.literals.addAll(alternative.literals);
+                } else {
+                    result.literals = null;
+                }
+
+                //Each alternative can match on its own, so only one of their requirements is certain
+                long tightestRequirement = ALL_TAGS;
+                for (long requirement : requirementsOf(alternative)) {
+                    if (Long.bitCount(requirement) < Long.bitCount(tightestRequirement)) {
+                        tightestRequirement = requirement;
+                    }
+                }
+                unionOfRequirements |= tightestRequirement;
+            }
+            if (unionOfRequirements != ALL_TAGS) {
+                result.requirements.add(unionOfRequirements);
+            }
+            return result;
+        }
+
+        private Analysis parseSequence() {
+            Analysis result = new Analysis();
+            Set<String> run = new HashSet<String>();
+            run.add("");
+            boolean onlyLiterals = true;
+
+            while (hasNext() && peek() != '|' && peek() != ')') {
+                Analysis item = parseQuantified();
+
+                if (item.literals != null) {
+                    Set<String> longerRun = concatenate(run, item.literals);
+                    if (longerRun == null) {
+                        result.requirements.addAll(requirementsOf(runAnalysis(run)));
+                        onlyLiterals = false;
+                        longerRun = new HashSet<String>(item.literals);
+                    }
+                    run = longerRun;
+                } else {
+                    result.requirements.addAll(requirementsOf(runAnalysis(run)));
+                    result.requirements.addAll(item.requirements);
+                    onlyLiterals = false;
+                    run = new HashSet<String>();
+                    run.add("");
+                }
+            }
+
+            if (onlyLiterals) {
+                result.literals = run;
+            } else {
+                result.requirements.addAll(requirementsOf(runAnalysis(run)));
+            }
+            return result;
+        }
+
+        private Analysis runAnalysis(Set<String> run) {
+            Analysis analysis = new Analysis();
+            analysis.literals = run;
+            return analysis;
+        }
+
+        private Analysis parseQuantified() {
+            Analysis atom = parseAtom();
+            if (!hasNext()) {
+                return atom;
+            }
+
+            int minimum;
+            int maximum;
+            char next = peek();
+            if (next == '?') {
+                minimum = 0;
+                maximum = 1;
+                position++;
+            } else if (next == '*') {
+                minimum = 0;
+                maximum = Integer.MAX_VALUE;
+                position++;
+            } else if (next == '+') {
+                minimum = 1;
+                maximum = Integer.MAX_VALUE;
+                position++;
+            } else if (next == '{') {
+                int end = rule.indexOf('}', position);
+                if (end < 0) {
+                    throw new UnsupportedOperationException();
+                }
+                String[] bounds = rule.substring(position + 1, end).split(",", -1);
+                try {
+                    minimum = Integer.parseInt(bounds[0].trim());
+                    maximum = bounds.length == 1 ? minimum : (bounds[1].trim().isEmpty() ? Integer.MAX_VALUE : Integer.parseInt(bounds[1].trim()));
+                } catch (NumberFormatException e) {
+                    throw new UnsupportedOperationException();
+                }
+                position = end + 1;
+            } else {
+                return atom;
+            }
+            if (hasNext() && (peek() == '?' || peek() == '+')) {
+                position++; //lazy and possessive quantifiers match the same strings
+            }
+
+            if (minimum == 1 && maximum == 1) {
+                return atom;
+            }
+            Analysis result = new Analysis();
+            if (minimum == 0) {
+                if (maximum == 1 && atom.literals != null && atom.literals.size() < MAX_LITERALS) {
+                    result.literals = new HashSet<String>(atom.literals);
+                    result.literals.add("");
+                }
+            } else {
+                result.requirements = requirementsOf(atom);
+            }
+            return result;
+        }
+
+        private Analysis parseAtom() {
+            char current = rule.charAt(position++);
+            switch (current) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    skipCharacterClass();
+                    return Analysis.unknown();
+                case '\\':
+                    return parseEscape();
+                case '.':
+                    return Analysis.unknown();
+                case '^':
+                case '$':
+                    return Analysis.literal("");
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                    throw new UnsupportedOperationException();
+                default:
+                    return Analysis.literal(String.valueOf(current));
+            }
+        }
+
+        private Analysis parseGroup() {
+            boolean lookaround = false;
+            if (rule.startsWith("?:", position)) {
+                position += 2;
+            } else if (rule.startsWith("?=", position) || rule.startsWith("?!", position)) {
+                position += 2;
+                lookaround = true;
+            } else if (rule.startsWith("?<=", position) || rule.startsWith("?<!", position)) {
+                position += 3;
+                lookaround = true;
+            } else if (rule.startsWith("?<", position)) {
+                int end = rule.indexOf('>', position);
+                if (end < 0) {
+                    throw new UnsupportedOperationException();
+                }
+                position = end + 1; //named group
+            } else if (rule.startsWith("?", position)) {
+                throw new UnsupportedOperationException(); //flags and atomic groups
+            }
+
+            Analysis inner = parseAlternation();
+            if (!hasNext() || peek() != ')') {
+                throw new UnsupportedOperationException();
+            }
+            position++;
+
+            if (lookaround) {
+                return Analysis.literal(""); //does not consume any characters of the match
+            }
+            return inner;
+        }
+
+        private void skipCharacterClass() {
+            int depth = 1;
+            if (hasNext() && peek() == '^') {
+                position++;
+            }
+            if (hasNext() && peek() == ']') {
+                position++; //a closing bracket at the start is a literal
+            }
+            while (hasNext()) {
+                char current = rule.charAt(position++);
+                if (current == '\\') {
+                    position++;
+                } else if (current == '[') {
+                    depth++;
+                } else if (current == ']') {
+                    depth--;
+                    if (depth == 0) {
+                        return;
+                    }
+                }
+            }
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * The characters matched by \\s, so a literal before it can be recognised as the end of a token
+         */
+        private Analysis whitespace() {
+            Analysis analysis = new Analysis();
+            analysis.literals = new HashSet<String>(Arrays.asList(" ", "\t", "\n", "\u000B", "\f", "\r"));
+            return analysis;
+        }
+
+        private Analysis parseEscape() {
+            if (!hasNext()) {
+                throw new UnsupportedOperationException();
+            }
+            char escaped = rule.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                case 'B':
+                case 'A':
+                case 'z':
+                case 'Z':
+                case 'G':
+                    return Analysis.literal("");
+                case 's':
+                    return whitespace();
+                case 'S':
+                case 'd':
+                case 'D':
+                case 'w':
+                case 'W':
+                case 'h':
+                case 'H':
+                case 'v':
+                case 'V':
+                case 'R':
+                case 'X':
+                    return Analysis.unknown();
+                case 't':
+                    return Analysis.literal("\t");
+                case 'n':
+                    return Analysis.literal("\n");
+                case 'r':
+                    return Analysis.literal("\r");
+                case 'f':
+                    return Analysis.literal("\f");
+                default:
+                    if (Character.isLetterOrDigit(escaped)) {
+                        throw new UnsupportedOperationException(); //back references, unicode and other escapes
+                    }
+                    return Analysis.literal(String.valueOf(escaped));
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * This class describes where a rules file is read from.
+ * Rules can be read from a file, a classpath resource or directly from a String
+ * Rules files are always read as UTF-8, because they contain characters like ∞ and €
+ */
+public abstract class RuleSource {
+
+    /**
+     * Rules are read from a file on the file system. Only these sources can be watched for changes
+     *
+     * @param path relative or absolute path to the rules file
+     * @return RuleSource reading the given file
+     */
+    public static RuleSource fromFile(String path) {
+        return new FileRuleSource(Paths.get(path));
+    }
+
+    /**
+     * Rules are read from a resource on the classpath, e.g. a rules file packaged into a jar
+     *
+     * @param resourceName name of the resource as used by ClassLoader.getResourceAsStream
+     * @return RuleSource reading the given resource
+     */
+    public static RuleSource fromClasspath(String resourceName) {
+        return new ClasspathRuleSource(resourceName);
+    }
+
+    /**
+     * Rules are given directly as a String in the same format as the rules files
+     *
+     * @param rules content of a rules file
+     * @return RuleSource reading the given String
+     */
+    public static RuleSource fromString(String rules) {
+        return new StringRuleSource(rules);
+    }
+
+    /**
+     * Opens a new reader on the rules. The caller has to close it
+     *
+     * @return Reader positioned at the first line of the rules
+     * @throws IOException
+     */
+    public abstract BufferedReader openReader() throws IOException;
+
+    /**
+     * Returns the path of the file backing this source, if there is one
+     *
+     * @return Path to watch for changes or null, if the source is not a file
+     */
+    public Path getWatchablePath() {
+        return null;
+    }
+
+
+    private static class FileRuleSource extends RuleSource {
+        private final Path path;
+
+        FileRuleSource(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        public BufferedReader openReader() throws IOException {
+            return new BufferedReader(new InputStreamReader(new FileInputStream(path.toFile()), "UTF-8"));
+        }
+
+        @Override
+        public Path getWatchablePath() {
+            return path.toAbsolutePath();
+        }
+
+        @Override
+        public String toString() {
+            return "file:" + path;
+        }
+    }
+
+    private static class ClasspathRuleSource extends RuleSource {
+        private final String resourceName;
+
+        ClasspathRuleSource(String resourceName) {
+            this.resourceName = resourceName;
+        }
+
+        @Override
+        public BufferedReader openReader() throws IOException {
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            if (classLoader == null) {
+                classLoader = RuleSource.class.getClassLoader();
+            }
+            InputStream stream = classLoader.getResourceAsStream(resourceName);
+            if (stream == null) {
+                throw new FileNotFoundException("Rules resource not found on classpath: " + resourceName);
+            }
+            return new BufferedReader(new InputStreamReader(stream, "UTF-8"));
+        }
+
+        @Override
+        public String toString() {
+            return "classpath:" + resourceName;
+        }
+    }
+
+    private static class StringRuleSource extends RuleSource {
+        private final String rules;
+
+        StringRuleSource(String rules) {
+            this.rules = rules;
+        }
+
+        @Override
+        public BufferedReader openReader() {
+            return new BufferedReader(new StringReader(rules));
+        }
+
+        @Override
+        public String toString() {
+            return "string:" + rules.length() + " characters";
+        }
+    }
+}
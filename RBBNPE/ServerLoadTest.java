@@ -0,0 +1,158 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import java.io.*;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends requests to a running BaseNounPhraseServer from several threads for a fixed time
+ * and reports the throughput and the p50 and p99 latency
+ */
+public class ServerLoadTest {
+
+    private static final String EXAMPLE_TEXT = "This text includes some noun phrases and some other phrases. I am only interested in the phrases, which are useful to my project.";
+
+    private final URL url;
+    private final byte[] body;
+    private final int concurrency;
+    private final long durationMillis;
+
+    private final AtomicLong errors = new AtomicLong();
+
+
+    /**
+     * @param url            URL of the extract endpoint including the query parameters
+     * @param body           the request body sent with every request
+     * @param concurrency    number of threads sending requests
+     * @param durationMillis how long requests are sent
+     */
+    public ServerLoadTest(URL url, byte[] body, int concurrency, long durationMillis) {
+        this.url = url;
+        this.body = body;
+        this.concurrency = concurrency;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * Sends requests until the duration is over and prints the results
+     *
+     * @throws InterruptedException
+     */
+    public void run() throws InterruptedException {
+        final long[][] latenciesOfThreads = new long[concurrency][];
+        final int[] requestsOfThreads = new int[concurrency];
+        final long endTime = System.currentTimeMillis() + durationMillis;
+
+        Thread[] threads = new Thread[concurrency];
+        for (int t = 0; t < concurrency; t++) {
+            final int threadIndex = t;
+            threads[t] = new Thread() {
+                public void run() {
+                    long[] latencies = new long[1024];
+                    int requests = 0;
+                    while (System.currentTimeMillis() < endTime) {
+                        long startNanos = System.nanoTime();
+                        if (!sendRequest()) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (requests == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                        }
+                        latencies[requests++] = System.nanoTime() - startNanos;
+                    }
+                    latenciesOfThreads[threadIndex] = latencies;
+                    requestsOfThreads[threadIndex] = requests;
+                }
+            };
+        }
+
+        long startNanos = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        int totalRequests = 0;
+        for (int requests : requestsOfThreads) {
+            totalRequests += requests;
+        }
+        long[] allLatencies = new long[totalRequests];
+        int position = 0;
+        for (int t = 0; t < concurrency; t++) {
+            System.arraycopy(latenciesOfThreads[t], 0, allLatencies, position, requestsOfThreads[t]);
+            position += requestsOfThreads[t];
+        }
+        Arrays.sort(allLatencies);
+
+        System.out.println("Requests:   " + totalRequests + " (" + errors.get() + " errors) with " + concurrency + " threads in " + String.format("%.1f", seconds) + " s");
+        System.out.println("Throughput: " + String.format("%.1f", totalRequests / seconds) + " requests/s");
+        System.out.println("Latency:    p50 " + String.format("%.2f", percentile(allLatencies, 0.50) / 1e6) + " ms, p99 " + String.format("%.2f", percentile(allLatencies, 0.99) / 1e6) + " ms");
+    }
+
+    private static long percentile(long[] sortedValues, double percentile) {
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedValues.length) - 1;
+        return sortedValues[Math.max(0, Math.min(index, sortedValues.length - 1))];
+    }
+
+    private boolean sendRequest() {
+        try {
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "text/plain; charset=utf-8");
+            OutputStream out = connection.getOutputStream();
+            out.write(body);
+            out.close();
+
+            int status = connection.getResponseCode();
+            InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+            if (in != null) {
+                byte[] buffer = new byte[8192];
+                while (in.read(buffer) != -1) {
+                    //the response is read completely, so the connection can be reused
+                }
+                in.close();
+            }
+            return status == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Arguments: [url] [concurrency] [durationSeconds] [pathToBodyFile]
+     * Defaults to http://localhost:8080/extract with 8 threads for 30 seconds and an example text
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = args.length > 0 ? args[0] : "http://localhost:8080/extract";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int durationSeconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        byte[] body = args.length > 3 ? Files.readAllBytes(Paths.get(args[3])) : EXAMPLE_TEXT.getBytes("UTF-8");
+
+        new ServerLoadTest(new URL(url), body, concurrency, durationSeconds * 1000L).run();
+    }
+}
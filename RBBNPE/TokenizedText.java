@@ -0,0 +1,386 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+import edu.stanford.nlp.ling.HasWord;
+import edu.stanford.nlp.ling.Word;
+
+import java.util.*;
+
+/**
+ * Text, which is already split into sentences and tokens, e.g. by an upstream pipeline.
+ * The tokens are kept as character offsets in int arrays, so no Word object is created per token until a sentence is tagged.
+ * It can be passed to POSBasedBaseNounPhraseExtractor.extractFromTokenizedText, which skips the tokenizer of the tagger
+ */
+public class TokenizedText {
+
+    /**
+     * Words, which are followed by a period as abbreviations. Abbreviations, which often end a sentence like "etc", are left out
+     */
+    private static final Set<String> ABBREVIATIONS = new HashSet<String>(Arrays.asList(
+            "Mr", "Mrs", "Ms", "Dr", "Prof", "Sr", "Jr", "St", "Mt", "Gen", "Gov", "Sen", "Rep", "Rev", "Col", "Lt", "Capt", "Sgt",
+            "Inc", "Corp", "Co", "Ltd", "Bros", "vs", "Jan", "Feb", "Aug", "Sept", "Oct", "Nov", "Dec"));
+
+    private final String text;
+    private final String[] tokens;
+    private final int[] beginOffsets;
+    private final int[] endOffsets;
+    private final int[] sentenceStarts;
+    private final int numberOfTokens;
+    private final int numberOfSentences;
+
+
+    private TokenizedText(String text, String[] tokens, int[] beginOffsets, int[] endOffsets, int numberOfTokens, int[] sentenceStarts, int numberOfSentences) {
+        this.text = text;
+        this.tokens = tokens;
+        this.beginOffsets = beginOffsets;
+        this.endOffsets = endOffsets;
+        this.numberOfTokens = numberOfTokens;
+        this.sentenceStarts = sentenceStarts;
+        this.numberOfSentences = numberOfSentences;
+    }
+
+    /**
+     * Splits a text with a lightweight tokenizer.
+     * Tokens are separated by whitespace. Punctuation marks are separate tokens, except inside of numbers like "3.5"
+     * and the endings 's and n't are split off like in the Penn Treebank. Standing alone, 's and n't are single tokens as well.
+     * Abbreviations like "Mr.", "Inc.", "U.S." and initials like "J." keep their period and do not end a sentence.
+     * A sentence ends after ".", "!" or "?", if the text ends or the next token starts with an upper case letter, a digit or a quotation mark.
+     * Unlike the tokenizer of the tagger, brackets and quotation marks are not replaced
+     *
+     * @param text the text to split
+     * @return the tokens and sentences of the text
+     */
+    public static TokenizedText tokenize(String text) {
+        Builder builder = new Builder(text);
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+
+            if (isStandalonePossessive(text, i)) {
+                i += 2;
+                builder.addToken(start, i);
+            } else if (Character.isLetterOrDigit(c)) {
+                i++;
+                while (i < length) {
+                    char current = text.charAt(i);
+                    if (Character.isLetterOrDigit(current)) {
+                        i++;
+                    } else if ((current == '.' || current == ',' || current == '\'' || current == '-')
+                            && i + 1 < length && Character.isLetterOrDigit(text.charAt(i + 1))) {
+                        i += 2;
+                    } else {
+                        break;
+                    }
+                }
+                if (i < length && text.charAt(i) == '.' && isAbbreviation(text, start, i)) {
+                    i++;
+                }
+                int clitic = startOfClitic(text, start, i);
+                if (clitic > start) {
+                    builder.addToken(start, clitic);
+                    builder.addToken(clitic, i);
+                } else {
+                    builder.addToken(start, i);
+                }
+            } else {
+                //Repeated punctuation marks like "..." or "--" form one token
+                i++;
+                while (i < length && text.charAt(i) == c) {
+                    i++;
+                }
+                builder.addToken(start, i);
+
+                if ((c == '.' || c == '!' || c == '?') && isSentenceStart(text, i)) {
+                    builder.endSentence(false);
+                }
+            }
+        }
+        builder.endSentence(false);
+        return builder.build();
+    }
+
+    /**
+     * Returns whether 's starts at the given index and is not followed by further letters or digits
+     */
+    private static boolean isStandalonePossessive(String text, int start) {
+        return start + 1 < text.length() && text.charAt(start) == '\''
+                && (text.charAt(start + 1) == 's' || text.charAt(start + 1) == 'S')
+                && (start + 2 == text.length() || !Character.isLetterOrDigit(text.charAt(start + 2)));
+    }
+
+    /**
+     * Returns the start of the ending 's or n't of the word between start and end or -1
+     */
+    private static int startOfClitic(String text, int start, int end) {
+        if (end - start > 2 && text.charAt(end - 2) == '\'' && (text.charAt(end - 1) == 's' || text.charAt(end - 1) == 'S')) {
+            return end - 2;
+        }
+        if (end - start > 3 && text.regionMatches(true, end - 3, "n't", 0, 3)) {
+            return end - 3;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether the word between start and end is an abbreviation, if it is followed by a period:
+     * a known abbreviation, a single upper case letter except the pronoun "I" or letters separated by periods like "U.S"
+     */
+    private static boolean isAbbreviation(String text, int start, int end) {
+        if (end - start == 1) {
+            return Character.isUpperCase(text.charAt(start)) && text.charAt(start) != 'I';
+        }
+        boolean containsPeriod = false;
+        boolean onlyLettersAndPeriods = true;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '.') {
+                containsPeriod = true;
+            } else if (!Character.isLetter(c)) {
+                onlyLettersAndPeriods = false;
+            }
+        }
+        return (containsPeriod && onlyLettersAndPeriods) || ABBREVIATIONS.contains(text.substring(start, end));
+    }
+
+    private static boolean isSentenceStart(String text, int position) {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        if (position == text.length()) {
+            return true;
+        }
+        char c = text.charAt(position);
+        return Character.isUpperCase(c) || Character.isDigit(c) || c == '"' || c == '\'' || c == '`';
+    }
+
+    /**
+     * Reads sentences, which are already tokenized: each String is one sentence with the tokens separated by whitespace.
+     * The offsets refer to the sentences joined by line breaks. Empty sentences are kept, so the indices of the sentences do not change
+     *
+     * @param sentences one String per sentence
+     * @return the tokens and sentences
+     */
+    public static TokenizedText fromSentences(List<String> sentences) {
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < sentences.size(); s++) {
+            if (s > 0) {
+                text.append('\n');
+            }
+            text.append(sentences.get(s));
+        }
+
+        Builder builder = new Builder(text.toString());
+        int offset = 0;
+        for (String sentence : sentences) {
+            int length = sentence.length();
+            int i = 0;
+            while (i < length) {
+                if (Character.isWhitespace(sentence.charAt(i))) {
+                    i++;
+                    continue;
+                }
+                int start = i;
+                while (i < length && !Character.isWhitespace(sentence.charAt(i))) {
+                    i++;
+                }
+                builder.addToken(offset + start, offset + i);
+            }
+            builder.endSentence(true);
+            offset += length + 1;
+        }
+        return builder.build();
+    }
+
+    /**
+     * Reads sentences given as token arrays. Empty sentences are kept, so the indices of the sentences do not change.
+     * The offsets are the same as for tokens in the CoNLL format: the tokens are separated by one character
+     *
+     * @param sentences one array of tokens per sentence
+     * @return the tokens and sentences
+     */
+    public static TokenizedText fromTokens(List<String[]> sentences) {
+        return fromTokens(sentences, null);
+    }
+
+    /**
+     * Reads sentences given as token arrays with the character offsets of the tokens in the original text
+     *
+     * @param sentences    one array of tokens per sentence
+     * @param beginOffsets one array with the offsets of the first characters of the tokens per sentence,
+     *                     or null to separate the tokens by one character
+     * @return the tokens and sentences
+     */
+    public static TokenizedText fromTokens(List<String[]> sentences, List<int[]> beginOffsets) {
+        if (beginOffsets != null && beginOffsets.size() != sentences.size()) {
+            throw new IllegalArgumentException("There have to be as many arrays of offsets as sentences");
+        }
+        Builder builder = new Builder(null);
+        int offset = 0;
+        for (int s = 0; s < sentences.size(); s++) {
+            String[] sentence = sentences.get(s);
+            int[] offsetsOfSentence = beginOffsets != null ? beginOffsets.get(s) : null;
+            if (offsetsOfSentence != null && offsetsOfSentence.length != sentence.length) {
+                throw new IllegalArgumentException("Sentence " + s + " has " + sentence.length + " tokens, but " + offsetsOfSentence.length + " offsets");
+            }
+            for (int t = 0; t < sentence.length; t++) {
+                int begin = offsetsOfSentence != null ? offsetsOfSentence[t] : offset;
+                builder.addToken(sentence[t], begin, begin + sentence[t].length());
+                offset = begin + sentence[t].length() + 1;
+            }
+            builder.endSentence(true);
+        }
+        return builder.build();
+    }
+
+    public int getNumberOfSentences() {
+        return numberOfSentences;
+    }
+
+    public int getNumberOfTokens() {
+        return numberOfTokens;
+    }
+
+    /**
+     * Returns the index of the first token of a sentence
+     *
+     * @param sentence index of the sentence
+     * @return index of the first token
+     */
+    public int getSentenceStart(int sentence) {
+        return sentenceStarts[sentence];
+    }
+
+    /**
+     * Returns the index after the last token of a sentence
+     *
+     * @param sentence index of the sentence
+     * @return index after the last token
+     */
+    public int getSentenceEnd(int sentence) {
+        return sentence + 1 < numberOfSentences ? sentenceStarts[sentence + 1] : numberOfTokens;
+    }
+
+    public String getToken(int token) {
+        return tokens != null ? tokens[token] : text.substring(beginOffsets[token], endOffsets[token]);
+    }
+
+    public int getBeginOffset(int token) {
+        return beginOffsets[token];
+    }
+
+    /**
+     * @return offset after the last character of the token
+     */
+    public int getEndOffset(int token) {
+        return endOffsets[token];
+    }
+
+    /**
+     * Creates the Words of one sentence for the tagger
+     */
+    List<HasWord> getSentence(int sentence) {
+        int start = getSentenceStart(sentence);
+        int end = getSentenceEnd(sentence);
+        List<HasWord> words = new ArrayList<HasWord>(end - start);
+        for (int token = start; token < end; token++) {
+            words.add(new Word(getToken(token), beginOffsets[token], endOffsets[token]));
+        }
+        return words;
+    }
+
+    /**
+     * Returns the sentences as a list for the tagger. The Words of a sentence are only created when it is requested,
+     * so only the sentence, which is tagged at the moment, exists as Words
+     */
+    List<List<HasWord>> asSentences() {
+        return new AbstractList<List<HasWord>>() {
+            public List<HasWord> get(int sentence) {
+                return getSentence(sentence);
+            }
+
+            public int size() {
+                return numberOfSentences;
+            }
+        };
+    }
+
+    /**
+     * Collects tokens and sentence boundaries in growing arrays
+     */
+    private static class Builder {
+        private final String text;
+        private String[] tokens;
+        private int[] beginOffsets = new int[64];
+        private int[] endOffsets = new int[64];
+        private int numberOfTokens = 0;
+        private int[] sentenceStarts = new int[8];
+        private int numberOfSentences = 0;
+        private int currentSentenceStart = 0;
+
+        Builder(String text) {
+            this.text = text;
+            if (text == null) {
+                tokens = new String[64];
+            }
+        }
+
+        void addToken(int begin, int end) {
+            addToken(null, begin, end);
+        }
+
+        void addToken(String token, int begin, int end) {
+            if (numberOfTokens == beginOffsets.length) {
+                beginOffsets = Arrays.copyOf(beginOffsets, numberOfTokens * 2);
+                endOffsets = Arrays.copyOf(endOffsets, numberOfTokens * 2);
+                if (tokens != null) {
+                    tokens = Arrays.copyOf(tokens, numberOfTokens * 2);
+                }
+            }
+            if (tokens != null) {
+                tokens[numberOfTokens] = token;
+            }
+            beginOffsets[numberOfTokens] = begin;
+            endOffsets[numberOfTokens] = end;
+            numberOfTokens++;
+        }
+
+        /**
+         * Ends the current sentence
+         *
+         * @param keepEmpty false to skip the sentence, if it contains no tokens
+         */
+        void endSentence(boolean keepEmpty) {
+            if (!keepEmpty && currentSentenceStart == numberOfTokens) {
+                return;
+            }
+            if (numberOfSentences == sentenceStarts.length) {
+                sentenceStarts = Arrays.copyOf(sentenceStarts, numberOfSentences * 2);
+            }
+            sentenceStarts[numberOfSentences++] = currentSentenceStart;
+            currentSentenceStart = numberOfTokens;
+        }
+
+        TokenizedText build() {
+            return new TokenizedText(text, tokens, beginOffsets, endOffsets, numberOfTokens, sentenceStarts, numberOfSentences);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+//This program is free software: you can redistribute it and/or modify
+//it under the terms of the GNU General Public License as published by
+//the Free Software Foundation, either version 3 of the License, or
+//(at your option) any later version.
+//
+//This program is distributed in the hope that it will be useful,
+//but WITHOUT ANY WARRANTY; without even the implied warranty of
+//MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//GNU General Public License for more details.
+//
+//You should have received a copy of the GNU General Public License
+//along with this program.  If not, see <http://www.gnu.org/licenses/>.
+
+package RBBNPE;
+
+/**
+ * Checks the lightweight tokenizer of TokenizedText on texts with known tokens and sentences, no tagger model is needed.
+ * The program exits with status 1, if any text is split differently, so it can be used as a regression gate.
+ *
+ * Usage: TokenizerCheck
+ */
+public class TokenizerCheck {
+
+    /**
+     * Pairs of a text and its expected sentences, tokens are separated by spaces and sentences by " | "
+     */
+    private static final String[][] CASES = {
+            {"He bought three dogs.", "He bought three dogs ."},
+            {"John's dog isn't here.", "John 's dog is n't here ."},
+            {"He said 's is odd.", "He said 's is odd ."},
+            {"'s and n't", "'s and n't"},
+            {"The 'sorry' note.", "The ' sorry ' note ."},
+            {"Mr. Smith met J. Doe in the U.S. today.", "Mr. Smith met J. Doe in the U.S. today ."},
+            {"I came. It rained 3.5 mm!", "I came . | It rained 3.5 mm !"},
+    };
+
+    private static String split(String text) {
+        TokenizedText tokenizedText = TokenizedText.tokenize(text);
+        StringBuilder result = new StringBuilder();
+        for (int sentence = 0; sentence < tokenizedText.getNumberOfSentences(); sentence++) {
+            if (sentence > 0) {
+                result.append(" |");
+            }
+            for (int token = tokenizedText.getSentenceStart(sentence); token < tokenizedText.getSentenceEnd(sentence); token++) {
+                if (result.length() > 0) {
+                    result.append(' ');
+                }
+                result.append(tokenizedText.getToken(token));
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * Tokenizes all texts and prints the ones, which are split differently than expected
+     *
+     * @return number of texts split differently
+     */
+    public static int check() {
+        int differentTexts = 0;
+        for (String[] testCase : CASES) {
+            String tokens = split(testCase[0]);
+            if (!tokens.equals(testCase[1])) {
+                differentTexts++;
+                System.out.println("Text:      " + testCase[0]);
+                System.out.println("  expected: " + testCase[1]);
+                System.out.println("  actual:   " + tokens);
+            }
+        }
+        System.out.println(differentTexts + " of " + CASES.length + " texts split differently");
+        return differentTexts;
+    }
+
+    public static void main(String[] args) {
+        if (check() > 0) {
+            System.exit(1);
+        }
+    }
+}